@@ -22,10 +22,16 @@ repositories {
 }
 
 dependencies {
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
 	implementation("org.springframework.boot:spring-boot-starter-data-mongodb")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.jetbrains:annotations:24.0.0")
+	implementation("com.github.ben-manes.caffeine:caffeine")
+	implementation(platform("software.amazon.awssdk:bom:2.20.162"))
+	implementation("software.amazon.awssdk:s3")
+	implementation("org.apache.commons:commons-fileupload2-jakarta:2.0.0-M1")
+	implementation("org.eclipse.jgit:org.eclipse.jgit:6.6.0.202305301015-r")
 	compileOnly("org.projectlombok:lombok")
 	annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
 	annotationProcessor("org.projectlombok:lombok")
@@ -51,6 +57,26 @@ tasks {
 		launchScript()
 	}
 
+	test {
+		useJUnitPlatform {
+			excludeTags("benchmark")
+		}
+	}
+
+	// Benchmarks need a running MongoDB and are therefore not part of the regular test run
+	register<Test>("benchmark") {
+		description = "Runs the tests tagged as benchmark."
+		group = "verification"
+		testClassesDirs = sourceSets["test"].output.classesDirs
+		classpath = sourceSets["test"].runtimeClasspath
+		useJUnitPlatform {
+			includeTags("benchmark")
+		}
+		testLogging {
+			showStandardStreams = true
+		}
+	}
+
 	// From StackOverflow: https://stackoverflow.com/a/53087407
 	// Licensed under: CC BY-SA 4.0
 	// Adapted to Kotlin
@@ -51,7 +51,7 @@ fi
 echo $DOWNLOADS
 
 # Launch a docker container that can see the mongo database and run the insertBuild.js script
-docker run --rm --network="$NETWORK" -e MONGODB_URL=$MONGODB_URL -v $(pwd):/app -v $(pwd)/repo:/repo -v $STORAGE_DIR:/storage -v $(pwd)/.gitconfig:/root/.gitconfig node:lts node /app/insertBuild.js \
+docker run --rm --network="$NETWORK" -e MONGODB_URL=$MONGODB_URL -e APP_STORAGE_TYPE -e APP_STORAGE_ROOTS -v $(pwd):/app -v $(pwd)/repo:/repo -v $STORAGE_DIR:/storage -v $(pwd)/.gitconfig:/root/.gitconfig node:lts node /app/insertBuild.js \
 	--projectName=$PROJECT \
 	--projectFriendlyName=$PROJECT_NAME \
 	--versionGroup=$VERSION_GROUP \
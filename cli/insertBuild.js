@@ -1,3 +1,4 @@
+const Crypto = require("crypto");
 const FileSystem = require("fs");
 const Path = require("path");
 const YArgs = require("yargs");
@@ -39,7 +40,18 @@ function parseArguments() {
         .argv;
 }
 
+function checkStorage() {
+    // Blobs are only written below storagePath, a server with S3 or other roots would never find them
+    const type = (process.env.APP_STORAGE_TYPE || "sharded").toLowerCase();
+    const roots = Object.keys(process.env).filter((key) => key.startsWith("APP_STORAGE_ROOTS"));
+    if(type !== "sharded" || roots.length > 0) {
+        console.error("[ERROR] insertBuild.js only supports the default storage, a single local root at the storage path. Publish with publishBuild.sh instead");
+        process.exit(1);
+    }
+}
+
 function checkOptions(options) {
+    checkStorage();
     options.buildChannel = options.buildChannel.toUpperCase(); // Build to upper case
     options.buildNumber = parseInt(options.buildNumber);
 
@@ -136,13 +148,27 @@ async function writeOrGetVersion(database, project, group, name) {
     );
 }
 
+// Commits shared with earlier builds are stored only once
+async function writeCommits(database, changes) {
+    if(!changes.length) {
+        return;
+    }
+    return database.collection("commits").bulkWrite(changes.map((change) => ({
+        updateOne: {
+            filter: { _id: change.commit },
+            update: { $setOnInsert: { summary: change.summary, message: change.message } },
+            upsert: true
+        }
+    })), { ordered: false });
+}
+
 async function writeBuild(database, project, version, buildNumber, channel, changes, downloads) {
     return database.collection('builds').insertOne({
         project: project.value._id,
         version: version.value._id,
         number: buildNumber,
         timestamp: new Date(),
-        changes: changes,
+        commits: changes.map((change) => change.commit),
         downloads,
         displayMode: 'HIDE',
         channel: channel
@@ -152,7 +178,36 @@ async function writeBuild(database, project, version, buildNumber, channel, chan
 async function findLatestBuild(database, project, version) {
     return database.collection("builds").findOne(
         { project: project.value._id, version: version.value._id },
-        { sort: { _id: -1 } }
+        { sort: { number: -1 } }
+    );
+}
+
+// Same sequence as the server, concurrent publishers never get the same number
+async function nextBuildNumber(database, project, version) {
+    const sequences = database.collection("build_sequences");
+    const increment = () => sequences.findOneAndUpdate(
+        { _id: version.value._id },
+        { $inc: { number: 1 } },
+        { returnDocument: "after" }
+    );
+    let sequence = await increment();
+    if(!sequence.value) {
+        // Continue after the builds published before the sequence existed
+        const latestBuild = await findLatestBuild(database, project, version);
+        await advanceBuildNumber(database, project, version, latestBuild ? latestBuild.number : 0);
+        sequence = await increment();
+    }
+    return sequence.value.number;
+}
+
+async function advanceBuildNumber(database, project, version, buildNumber) {
+    return database.collection("build_sequences").updateOne(
+        { _id: version.value._id },
+        {
+            $max: { number: buildNumber },
+            $setOnInsert: { project: project.value._id }
+        },
+        { upsert: true }
     );
 }
 
@@ -179,18 +234,41 @@ async function connectToMongoDB() {
     }
 }
 
-function buildStoragePath(storagePath, projectName, versionName, buildNumber) {
-    return Path.join(storagePath, projectName, versionName, buildNumber.toString());
+function buildBlobPath(storagePath, hash) {
+    return Path.join(storagePath, "blobs", hash.substring(0, 2), hash);
 }
 
 function generateName(download, projectName, versionName, buildNumber) {
     return download.name ? download.name : projectName + "-" + versionName + "-" + buildNumber + ".jar";
 }
 
-function copyDownload(download, storageFolder, projectName, versionName, buildNumber) {
-    const target = Path.join(storageFolder, generateName(download, projectName, versionName, buildNumber));
+function hashFile(path) {
+    return new Promise((resolve, reject) => {
+        const hash = Crypto.createHash("sha256");
+        FileSystem.createReadStream(path)
+            .on("error", reject)
+            .on("data", (chunk) => hash.update(chunk))
+            .on("end", () => resolve(hash.digest("hex")));
+    });
+}
+
+async function storeDownload(download, storagePath) {
+    const hash = await hashFile(download.path);
+    if(hash !== download.hash.toLowerCase()) {
+        console.error(`[ERROR/copy] ${download.path} has the sha256 ${hash} but ${download.hash} was given`);
+        process.exit(1);
+    }
+    download.hash = hash;
+
+    const target = buildBlobPath(storagePath, hash);
+    if(FileSystem.existsSync(target)) {
+        console.log(`[INFO/copy] ${download.path} is already stored as ${target}`);
+        return;
+    }
     console.log(`[INFO/copy] Copying ${download.path} to ${target}`);
-    FileSystem.copyFileSync(download.path, target);
+    FileSystem.mkdirSync(Path.dirname(target), { recursive: true });
+    FileSystem.copyFileSync(download.path, target + ".tmp");
+    FileSystem.renameSync(target + ".tmp", target);
 }
 
 async function main() {
@@ -211,28 +289,27 @@ async function main() {
     const previousBuild = await findLatestBuild(database, project, version);
 
     if(buildNumber === -1) {
-        if(previousBuild) {
-            buildNumber = previousBuild.number + 1;
-        } else {
-            buildNumber = 1;
-        }
+        buildNumber = await nextBuildNumber(database, project, version);
         console.log(`[INFO/build] Next build number is ${buildNumber}`);
+    } else {
+        await advanceBuildNumber(database, project, version, buildNumber);
     }
 
     // BuildNumber should be set for now. Ready to copy files
 
     // Copy files
     console.log("[INFO/copy] Copying files...");
-    storagePath = buildStoragePath(options.storagePath, options.projectName, options.versionName, buildNumber);
-    if(!FileSystem.existsSync(storagePath)) {
-        FileSystem.mkdirSync(storagePath, { recursive: true });
+    for(const download of options.download) {
+        await storeDownload(download, options.storagePath);
     }
-    options.download.forEach((download) => {
-        copyDownload(download, storagePath, options.projectName, options.versionName, buildNumber);
-    });
     console.log("[INFO/copy] Finished!");
 
-    const lastBuildCommit = previousBuild && previousBuild.changes.length ? previousBuild.changes.slice(0, 1)[0].commit : "HEAD^1";
+    let lastBuildCommit = "HEAD^1";
+    if(previousBuild && previousBuild.commits && previousBuild.commits.length) {
+        lastBuildCommit = previousBuild.commits[0];
+    } else if(previousBuild && previousBuild.changes && previousBuild.changes.length) {
+        lastBuildCommit = previousBuild.changes[0].commit; // Not migrated yet
+    }
 
     // Get changes since last build
     let changes = [];
@@ -263,7 +340,16 @@ async function main() {
     });
 
     console.log("[INFO/database] Adding build to database...");
-    await writeBuild(database, project, version, buildNumber, options.buildChannel, changes, downloads);
+    await writeCommits(database, changes);
+    try {
+        await writeBuild(database, project, version, buildNumber, options.buildChannel, changes, downloads);
+    } catch(error) {
+        if(error.code === 11000) {
+            console.error(`[ERROR/database] Build ${buildNumber} already exists`);
+            process.exit(1);
+        }
+        throw error;
+    }
 
     await client.close();
     console.log(`[FINISHED] Inserted build ${buildNumber} (Channel: ${options.buildChannel}) for project ${options.projectName} (${project.value._id}) version ${options.versionName} (${version.value._id})`);
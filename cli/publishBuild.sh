@@ -0,0 +1,50 @@
+#!/bin/bash
+
+# Publishes a build through the API in a single streaming upload, replacement for handleBuild.sh and insertBuild.js
+# Needs curl, git and jq, the .env file provides API_URL and INGEST_TOKEN
+
+export $(cat .env | xargs)
+
+if [ $# -lt 4 ]; then
+  echo "Usage: $0 <project> <version> <build> <repository> [since]"
+  echo "Publishes ./files/*.jar, <build> -1 picks the next number, [since] is the commit of the previous build"
+  exit 1
+fi
+
+PROJECT=$1
+VERSION=$2
+BUILD=$3
+REPOSITORY=$4
+SINCE=${5:-HEAD^1}
+
+FORM=(-F "friendlyName=${PROJECT^}" -F "group=${VERSION%.*}")
+if [ $BUILD -ne -1 ]; then
+  FORM+=(-F "number=$BUILD")
+fi
+
+CHANGES=$(git -C "$REPOSITORY" log --format='%H%x00%s%x00%B%x00' "$SINCE...HEAD" \
+  | jq -Rs 'split("\u0000") | [range(0; length - 1; 3) as $i | {commit: (.[$i] | ltrimstr("\n")), summary: .[$i + 1], message: .[$i + 2]}]')
+FORM+=(-F "changes=$CHANGES;type=application/json")
+# Servers with a changelog repository for the project index the changes from the commit instead
+FORM+=(-F "commit=$(git -C "$REPOSITORY" rev-parse HEAD)")
+
+# The first jar is the application, an empty file name lets the server name it after the build
+# Every other jar is typed by its base name, e.g. ./files/Sources.jar is uploaded as "sources"
+TYPE=application
+for file in ./files/*.jar; do
+  [ -e "$file" ] || continue
+  if [ "$TYPE" = application ]; then
+    FORM+=(-F "application=@$file;filename=")
+    TYPE=
+    continue
+  fi
+  NAME=$(basename "$file" .jar | tr '[:upper:]' '[:lower:]' | tr -c 'a-z0-9:_\n-' '-')
+  FORM+=(-F "$NAME=@$file;filename=$(basename "$file")")
+done
+
+curl --fail-with-body -sS -X POST -H "Authorization: Bearer $INGEST_TOKEN" "${FORM[@]}" \
+  "$API_URL/v1/projects/$PROJECT/versions/$VERSION/builds" || exit 1
+
+echo
+echo "Cleaning up..."
+rm -rf ./files/*
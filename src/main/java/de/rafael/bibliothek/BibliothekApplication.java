@@ -27,6 +27,7 @@ import de.rafael.bibliothek.configuration.AppConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @author Rafael K.
@@ -34,6 +35,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
  */
 
 @EnableConfigurationProperties(AppConfiguration.class)
+@EnableScheduling
 @SpringBootApplication
 public class BibliothekApplication {
 
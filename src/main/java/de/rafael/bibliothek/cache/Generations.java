@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.cache;
+
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.event.BuildPublishedEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory change counters for the metadata endpoints.
+ * There is one generation for everything, one per project and one per version, each of them is advanced when a build is
+ * published into it. ETags and Last-Modified are derived from the generation, so conditional requests are answered without
+ * looking at the database.
+ * Generations also advance once they are older than the response cache TTL, which bounds how long changes made directly in
+ * the database stay unnoticed. Scopes are only created for projects and versions that exist, names from arbitrary request
+ * paths can not grow the map.
+ *
+ * @author Rafael K.
+ * @since 18:02, 18.10.26
+ */
+
+@Component
+public class Generations {
+
+    public static final String ATTRIBUTE = Generations.class.getName();
+
+    private final MetadataCache metadata;
+    private final long maxAge;
+    private final long seed = System.currentTimeMillis();
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public Generations(AppConfiguration configuration, MetadataCache metadata) {
+        this.metadata = metadata;
+        this.maxAge = configuration.getCache().getResponses().getTtl().toNanos();
+    }
+
+    /**
+     * @return null if the project or version does not exist
+     */
+    public @Nullable Generation current(@Nullable String project, @Nullable String version) {
+        if (project != null) {
+            var resolved = this.metadata.findProject(project);
+            if (resolved.isEmpty() || (version != null && this.metadata.findVersion(resolved.get(), version).isEmpty())) {
+                return null;
+            }
+        }
+        var scope = scope(project, version);
+        var generation = this.generations.get(scope);
+        if (generation != null && !generation.expired()) {
+            return generation;
+        }
+        return this.generations.compute(scope, (key, current) -> current == null ? Generation.initial(this.seed, this.maxAge) : current.expired() ? current.next(this.maxAge) : current);
+    }
+
+    @EventListener
+    @Order // Advance last, once the metadata cache and the version summaries reflect the new build
+    public void onBuildPublished(@NotNull BuildPublishedEvent event) {
+        var build = event.build();
+        var project = this.metadata.findProject(build.project());
+        var version = this.metadata.findVersion(build.version());
+        this.advance(scope(null, null));
+        project.ifPresent(value -> this.advance(scope(value.name(), null)));
+        project.ifPresent(value -> version.ifPresent(other -> this.advance(scope(value.name(), other.name()))));
+    }
+
+    private void advance(String scope) {
+        this.generations.compute(scope, (key, current) -> current == null ? Generation.initial(this.seed, this.maxAge).next(this.maxAge) : current.next(this.maxAge));
+    }
+
+    private static @NotNull String scope(@Nullable String project, @Nullable String version) {
+        if (project == null) {
+            return "";
+        }
+        return version == null ? project : project + "/" + version;
+    }
+
+    /**
+     * @param number increases with every change, seeded with the start time so tags from a previous run do not match
+     * @param tag    prefix shared by all ETags issued for this generation
+     */
+    public record Generation(long number, String tag, Instant lastModified, long expiresAt) {
+
+        private static @NotNull Generation initial(long seed, long maxAge) {
+            return new Generation(seed, tag(seed), Instant.ofEpochMilli(seed).truncatedTo(ChronoUnit.SECONDS), System.nanoTime() + maxAge);
+        }
+
+        private @NotNull Generation next(long maxAge) {
+            // HTTP dates only have second precision, Last-Modified has to move forward on every change
+            var now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            var lastModified = now.isAfter(this.lastModified) ? now : this.lastModified.plus(Duration.ofSeconds(1));
+            return new Generation(this.number + 1, tag(this.number + 1), lastModified, System.nanoTime() + maxAge);
+        }
+
+        private boolean expired() {
+            return System.nanoTime() - this.expiresAt > 0;
+        }
+
+        public @NotNull String etag(@NotNull String hash) {
+            return this.tag + hash + "\"";
+        }
+
+        /**
+         * @return the entity tag of the client's copy that was issued for this generation, sent back with 304
+         */
+        public @Nullable String matchingTag(@NotNull HttpServletRequest request) {
+            var ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch == null) {
+                return null;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                if (tag.contains(this.tag)) {
+                    return tag.trim();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return whether the client's copy was issued for this generation and is therefore still current
+         */
+        public boolean matches(@NotNull HttpServletRequest request) {
+            var ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null) {
+                return ifNoneMatch.contains(this.tag);
+            }
+            try {
+                var ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+                return ifModifiedSince >= 0 && ifModifiedSince >= this.lastModified.toEpochMilli();
+            } catch (IllegalArgumentException exception) {
+                return false;
+            }
+        }
+
+        private static @NotNull String tag(long number) {
+            return "\"" + Long.toHexString(number) + "-";
+        }
+
+    }
+
+}
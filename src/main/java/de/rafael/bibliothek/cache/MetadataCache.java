@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.event.BuildPublishedEvent;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Group;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.model.VersionSummary;
+import de.rafael.bibliothek.database.repository.BuildPath;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.GroupRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.database.repository.VersionSummaryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-process cache in front of the metadata repositories.
+ * Only successful lookups are cached, so documents created outside the application show up on the next request.
+ * Hit, miss and eviction counters are exported as {@code cache.*} metrics.
+ *
+ * @author Rafael K.
+ * @since 14:12, 18.10.26
+ */
+
+@Component
+public class MetadataCache {
+
+    private final ProjectRepository projects;
+    private final VersionRepository versions;
+    private final GroupRepository groups;
+    private final BuildRepository builds;
+    private final VersionSummaryRepository summaries;
+    private final Duration summaryMaxAge;
+
+    private final Cache<String, Project> projectsByName;
+    private final Cache<ObjectId, Project> projectsById;
+    private final Cache<VersionKey, Version> versionsByName;
+    private final Cache<ObjectId, Version> versionsById;
+    private final Cache<GroupKey, Group> groupsByName;
+    private final Cache<BuildKey, Build> buildsByNumber;
+
+    @Autowired
+    public MetadataCache(AppConfiguration configuration, MeterRegistry registry, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, VersionSummaryRepository summaries) {
+        this.projects = projects;
+        this.versions = versions;
+        this.groups = groups;
+        this.builds = builds;
+        this.summaries = summaries;
+        this.summaryMaxAge = configuration.getCache().getSummaryMaxAge();
+
+        var cache = configuration.getCache();
+        this.projectsByName = create(registry, "projects.name", cache.getProjects());
+        this.projectsById = create(registry, "projects.id", cache.getProjects());
+        this.versionsByName = create(registry, "versions.name", cache.getVersions());
+        this.versionsById = create(registry, "versions.id", cache.getVersions());
+        this.groupsByName = create(registry, "groups.name", cache.getGroups());
+        this.buildsByNumber = create(registry, "builds.number", cache.getBuilds());
+    }
+
+    public Optional<Project> findProject(@NotNull String name) {
+        return Optional.ofNullable(this.projectsByName.get(name, key -> this.projects.findByName(key).map(this::rememberProject).orElse(null)));
+    }
+
+    public Optional<Project> findProject(@NotNull ObjectId id) {
+        return Optional.ofNullable(this.projectsById.get(id, key -> this.projects.findById(key).orElse(null)));
+    }
+
+    public Optional<Version> findVersion(@NotNull Project project, @NotNull String name) {
+        return Optional.ofNullable(this.versionsByName.get(new VersionKey(project._id(), name), key -> this.versions.findByProjectAndName(key.project(), key.name()).map(this::rememberVersion).orElse(null)));
+    }
+
+    public Optional<Version> findVersion(@NotNull ObjectId id) {
+        return Optional.ofNullable(this.versionsById.get(id, key -> this.versions.findById(key).orElse(null)));
+    }
+
+    public Optional<Group> findGroup(@NotNull Project project, @NotNull String name) {
+        return Optional.ofNullable(this.groupsByName.get(new GroupKey(project._id(), name), key -> this.groups.findByProjectAndName(key.project(), key.name()).orElse(null)));
+    }
+
+    public Optional<Build> findBuild(@NotNull Project project, @NotNull Version version, int number) {
+        return Optional.ofNullable(this.buildsByNumber.get(new BuildKey(project._id(), version._id(), number), key -> this.builds.findByProjectAndVersionAndNumber(key.project(), key.version(), key.number()).orElse(null)));
+    }
+
+    /**
+     * Summaries are maintained when builds are published, they are only recomputed here if missing or older than
+     * {@code app.cache.summary-max-age} to pick up builds promoted directly in the database.
+     */
+    public VersionSummary findSummary(@NotNull Version version) {
+        return this.summaries.findById(version._id())
+                .filter(summary -> summary.updated().plus(this.summaryMaxAge).isAfter(Instant.now()))
+                .orElseGet(() -> this.summaries.refresh(version.project(), version._id()));
+    }
+
+    /**
+     * Serves the full path from the cache if every segment is cached, otherwise resolves it with a single aggregation.
+     */
+    public Optional<BuildPath> resolveBuild(@NotNull String projectName, @NotNull String versionName, int number) {
+        var project = this.projectsByName.getIfPresent(projectName);
+        if (project != null) {
+            var version = this.versionsByName.getIfPresent(new VersionKey(project._id(), versionName));
+            if (version != null) {
+                var build = this.buildsByNumber.getIfPresent(new BuildKey(project._id(), version._id(), number));
+                if (build != null) {
+                    return Optional.of(new BuildPath(project, version, build));
+                }
+            }
+        }
+
+        var path = this.builds.resolve(projectName, versionName, number);
+        path.ifPresent(this::remember);
+        return path;
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBuildPublished(@NotNull BuildPublishedEvent event) {
+        var build = event.build();
+        this.buildsByNumber.invalidate(new BuildKey(build.project(), build.version(), build.number()));
+        var version = this.versionsById.getIfPresent(build.version());
+        if (version != null) {
+            this.versionsByName.invalidate(new VersionKey(version.project(), version.name()));
+        }
+        this.versionsById.invalidate(build.version());
+    }
+
+    private void remember(@NotNull BuildPath path) {
+        var project = path.project();
+        this.projectsByName.put(project.name(), rememberProject(project));
+        var version = path.version();
+        if (version == null) {
+            return;
+        }
+        this.versionsByName.put(new VersionKey(project._id(), version.name()), rememberVersion(version));
+        var build = path.build();
+        if (build != null) {
+            this.buildsByNumber.put(new BuildKey(project._id(), version._id(), build.number()), build);
+        }
+    }
+
+    private Project rememberProject(@NotNull Project project) {
+        this.projectsById.put(project._id(), project);
+        return project;
+    }
+
+    private Version rememberVersion(@NotNull Version version) {
+        this.versionsById.put(version._id(), version);
+        return version;
+    }
+
+    private static <K, V> @NotNull Cache<K, V> create(MeterRegistry registry, String name, @NotNull AppConfiguration.Entry entry) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(entry.getMaximumSize())
+                .expireAfterWrite(entry.getTtl())
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(registry, cache, "metadata." + name);
+    }
+
+    private record VersionKey(ObjectId project, String name) {}
+
+    private record GroupKey(ObjectId project, String name) {}
+
+    private record BuildKey(ObjectId project, ObjectId version, int number) {}
+
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Keeps the serialized JSON of metadata responses, together with a gzip variant and strong ETags, keyed by request path
+ * and the query parameters the handler reads, other parameters do not create entries. The cache is bounded by the bytes
+ * of both bodies. Entries belong to the {@link Generations.Generation} they were rendered in and are ignored once it has
+ * moved on.
+ *
+ * @author Rafael K.
+ * @since 16:40, 18.10.26
+ */
+
+@Component
+public class ResponseCache {
+
+    private final ObjectMapper json;
+    private final Generations generations;
+    private final Cache<String, Entry> entries;
+    private final Map<Method, List<String>> parameters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ResponseCache(AppConfiguration configuration, MeterRegistry registry, ObjectMapper json, Generations generations) {
+        this.json = json;
+        this.generations = generations;
+
+        var responses = configuration.getCache().getResponses();
+        Cache<String, Entry> entries = Caffeine.newBuilder()
+                .maximumWeight(responses.getMaximumSize().toBytes())
+                .weigher((String key, Entry entry) -> entry.identity().length + entry.gzip().length)
+                .expireAfterWrite(responses.getTtl())
+                .recordStats()
+                .build();
+        this.entries = CaffeineCacheMetrics.monitor(registry, entries, "responses");
+    }
+
+    public @Nullable Entry find(@NotNull HttpServletRequest request, @NotNull Generations.Generation generation) {
+        var entry = this.entries.getIfPresent(this.key(request));
+        return entry != null && entry.generation() == generation.number() ? entry : null;
+    }
+
+    public @NotNull Entry store(@NotNull HttpServletRequest request, @NotNull CacheControl cache, @NotNull Object body) {
+        var generation = generation(request);
+        if (generation == null) {
+            // Created after the interceptor looked, rendered once without being cached
+            return this.render(request, cache, body);
+        }
+        var entry = Entry.of(serialize(body), Objects.requireNonNull(cache.getHeaderValue()), generation);
+        this.entries.put(this.key(request), entry);
+        return entry;
+    }
+
+    /**
+     * Renders the response like {@link #store} without keeping it, for responses that are too large to be cached.
+     */
+    public @NotNull Entry render(@NotNull HttpServletRequest request, @NotNull CacheControl cache, @NotNull Object body) {
+        var generation = generation(request);
+        return Entry.of(serialize(body), Objects.requireNonNull(cache.getHeaderValue()), generation != null ? generation : Objects.requireNonNull(this.generations.current(null, null)));
+    }
+
+    /**
+     * The generation has to be taken before the response is rendered, otherwise a build published in between could be
+     * cached under the new generation with old content.
+     *
+     * @return null if the project or version of the path does not exist
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable Generations.Generation generation(@NotNull HttpServletRequest request) {
+        if (request.getAttribute(Generations.ATTRIBUTE) instanceof Generations.Generation generation) {
+            return generation;
+        }
+        var variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        var generation = variables == null ? this.generations.current(null, null) : this.generations.current(variables.get("project"), variables.get("version"));
+        if (generation != null) {
+            request.setAttribute(Generations.ATTRIBUTE, generation);
+        }
+        return generation;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return this.json.writeValueAsBytes(body);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Failed to serialize response", exception);
+        }
+    }
+
+    private @NotNull String key(@NotNull HttpServletRequest request) {
+        if (!(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler)) {
+            return request.getRequestURI();
+        }
+        var key = new StringBuilder(request.getRequestURI());
+        var separator = '?';
+        for (String name : this.parameters.computeIfAbsent(handler.getMethod(), ResponseCache::parameters)) {
+            var values = request.getParameterValues(name);
+            if (values == null) {
+                continue;
+            }
+            for (String value : values) {
+                key.append(separator).append(name).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return names of the handler's query parameters, sorted so their order in the request does not matter
+     */
+    private static @NotNull List<String> parameters(@NotNull Method method) {
+        return Arrays.stream(method.getParameters())
+                .map(parameter -> parameter.getAnnotation(RequestParam.class))
+                .filter(Objects::nonNull)
+                .map(annotation -> annotation.value().isEmpty() ? annotation.name() : annotation.value())
+                .filter(name -> !name.isEmpty())
+                .sorted()
+                .toList();
+    }
+
+    public record Entry(byte[] identity, byte[] gzip, String identityTag, String gzipTag, String cacheControl, long generation, long lastModified) {
+
+        private static final String GZIP = "gzip";
+
+        private static @NotNull Entry of(byte[] identity, String cacheControl, @NotNull Generations.Generation generation) {
+            var hash = HexFormat.of().formatHex(sha256(identity), 0, 8);
+            return new Entry(identity, gzip(identity), generation.etag(hash), generation.etag(hash + "-gzip"), cacheControl, generation.number(), generation.lastModified().toEpochMilli());
+        }
+
+        /**
+         * @return the tag of the variant the request gets
+         */
+        public @NotNull String etag(@NotNull HttpServletRequest request) {
+            return acceptsGzip(request) ? this.gzipTag : this.identityTag;
+        }
+
+        public void write(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response) throws IOException {
+            var gzip = acceptsGzip(request);
+            var body = gzip ? this.gzip : this.identity;
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, this.cacheControl);
+            response.setHeader(HttpHeaders.ETAG, this.etag(request));
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, this.lastModified);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+
+        public @NotNull ResponseEntity<byte[]> toResponseEntity(@NotNull HttpServletRequest request) {
+            var gzip = acceptsGzip(request);
+            var builder = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CACHE_CONTROL, this.cacheControl)
+                    .header(HttpHeaders.ETAG, this.etag(request))
+                    .lastModified(this.lastModified)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+            return builder.body(gzip ? this.gzip : this.identity);
+        }
+
+        /**
+         * Follows the q-values of Accept-Encoding, {@code gzip;q=0} refuses gzip and {@code *} stands for every coding
+         * that is not listed.
+         */
+        private static boolean acceptsGzip(@NotNull HttpServletRequest request) {
+            var encoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (encoding == null) {
+                return false;
+            }
+            Double gzip = null, any = null;
+            for (String coding : encoding.split(",")) {
+                var parameters = coding.split(";");
+                var name = parameters[0].trim().toLowerCase(Locale.ROOT);
+                var quality = 1.0;
+                for (int i = 1; i < parameters.length; i++) {
+                    var parameter = parameters[i].trim();
+                    if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2).trim());
+                        } catch (NumberFormatException exception) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (name.equals(GZIP) || name.equals("x-gzip")) {
+                    gzip = quality;
+                } else if (name.equals("*")) {
+                    any = quality;
+                }
+            }
+            var quality = gzip != null ? gzip : any;
+            return quality != null && quality > 0;
+        }
+
+        private static byte[] gzip(byte[] data) {
+            var output = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            try (var gzip = new GZIPOutputStream(output)) {
+                gzip.write(data);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return output.toByteArray();
+        }
+
+        private static byte[] sha256(byte[] data) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(data);
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.cache;
+
+import de.rafael.bibliothek.classes.ApiController;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Answers metadata requests before the controller runs, either with 304 if the client's copy belongs to the current
+ * {@link Generations.Generation} or from the {@link ResponseCache}. Paths naming a project or version that does not exist
+ * are left to the controller, which answers them with 404.
+ *
+ * @author Rafael K.
+ * @since 17:05, 18.10.26
+ */
+
+@Component
+public class ResponseCacheInterceptor implements HandlerInterceptor {
+
+    private static final String CACHE_CONTROL = ApiController.defaultCache().getHeaderValue();
+
+    private final ResponseCache responses;
+
+    @Autowired
+    public ResponseCacheInterceptor(ResponseCache responses) {
+        this.responses = responses;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean preHandle(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull Object handler) throws Exception {
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+        // Only JSON handlers go through ApiController.ok, streamed variants are never cached
+        var producible = (Set<MediaType>) request.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+        if (producible != null && !producible.contains(MediaType.APPLICATION_JSON)) {
+            return true;
+        }
+        var generation = this.responses.generation(request);
+        if (generation == null) {
+            return true;
+        }
+        var entry = this.responses.find(request, generation);
+        if (generation.matches(request)) {
+            var etag = entry != null ? entry.etag(request) : generation.matchingTag(request);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+            }
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, generation.lastModified().toEpochMilli());
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return false;
+        }
+        if (entry == null) {
+            return true;
+        }
+        entry.write(request, response);
+        return false;
+    }
+
+}
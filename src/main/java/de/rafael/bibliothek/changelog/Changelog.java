@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.changelog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Commit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the changes of builds from the {@link Commit}s they reference, as much of them as the client asked for with
+ * {@code ?changes=none|summary|full}. Commits never change, they are cached until evicted by size and loaded with one
+ * {@code $in} query per build, or per listing with {@link #prefetch}. Nothing is loaded for {@code none}.
+ *
+ * @author Rafael K.
+ * @since 20:18, 19.10.26
+ */
+
+@Component
+public class Changelog {
+
+    private final MongoTemplate template;
+    private final Cache<String, Commit> commits;
+
+    @Autowired
+    public Changelog(AppConfiguration configuration, MeterRegistry registry, MongoTemplate template) {
+        this.template = template;
+
+        Cache<String, Commit> commits = Caffeine.newBuilder()
+                .maximumSize(configuration.getChangelog().getCachedCommits())
+                .recordStats()
+                .build();
+        this.commits = CaffeineCacheMetrics.monitor(registry, commits, "commits");
+    }
+
+    public void prefetch(@NotNull Collection<Build> builds, @NotNull Detail detail) {
+        if (detail == Detail.NONE) {
+            return;
+        }
+        var hashes = builds.stream().map(Build::commits).filter(Objects::nonNull).flatMap(List::stream).collect(Collectors.toSet());
+        if (!hashes.isEmpty()) {
+            this.commits.getAll(hashes, this::load);
+        }
+    }
+
+    /**
+     * @return null for {@link Detail#NONE}, which leaves the field out of the response
+     */
+    public @Nullable List<Build.Change> changes(@NotNull Build build, @NotNull Detail detail) {
+        if (detail == Detail.NONE) {
+            return null;
+        }
+        var changes = this.changes(build);
+        return detail == Detail.FULL ? changes : changes.stream().map(change -> new Build.Change(change.commit(), change.summary(), null)).toList();
+    }
+
+    /**
+     * Stores changes that did not come from a changelog repository, commits that already exist are left as they are.
+     *
+     * @return hashes of the changes in their order
+     */
+    public @NotNull List<String> store(@NotNull List<Build.Change> changes) {
+        if (changes.isEmpty()) {
+            return List.of();
+        }
+        var operations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, Commit.class);
+        for (Build.Change change : changes) {
+            operations.upsert(
+                    Query.query(Criteria.where("_id").is(change.commit())),
+                    new Update().setOnInsert("summary", change.summary()).setOnInsert("message", change.message())
+            );
+        }
+        operations.execute();
+        return changes.stream().map(Build.Change::commit).toList();
+    }
+
+    private @NotNull List<Build.Change> changes(@NotNull Build build) {
+        if (build.commits() == null || build.commits().isEmpty()) {
+            return build.changes() == null ? List.of() : build.changes();
+        }
+        var commits = this.commits.getAll(build.commits(), this::load);
+        return build.commits().stream()
+                .map(commits::get)
+                .filter(Objects::nonNull)
+                .map(commit -> new Build.Change(commit._id(), commit.summary(), commit.message()))
+                .toList();
+    }
+
+    private @NotNull Map<String, Commit> load(@NotNull Set<? extends String> hashes) {
+        return this.template.find(Query.query(Criteria.where("_id").in(hashes)), Commit.class).stream()
+                .collect(Collectors.toMap(Commit::_id, Function.identity()));
+    }
+
+    public enum Detail {
+
+        NONE,
+        SUMMARY,
+        FULL;
+
+        public static @NotNull Detail of(@NotNull String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+
+    }
+
+}
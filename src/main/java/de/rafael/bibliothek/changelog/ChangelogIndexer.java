@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.changelog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Commit;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes the commits between two builds from the repositories in {@code app.changelog.repositories}.
+ * Every repository is cloned bare in the background once the application is ready and only fetched when a build
+ * references a commit it does not know yet. Each project has its own lock, a slow clone or fetch only holds up publishers
+ * of the same project. The walk
+ * stops at the previous build's commit, so its cost depends on the commits since then and not on the size of the history.
+ * Commits are upserted by hash and never stored twice, ranges are remembered, publishing several versions from the same
+ * commit walks once.
+ *
+ * @author Rafael K.
+ * @since 19:52, 19.10.26
+ */
+
+@Component
+public class ChangelogIndexer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangelogIndexer.class);
+
+    private final Map<String, String> uris;
+    private final Path directory;
+    private final int maximumCommits;
+    private final MongoTemplate template;
+    private final Cache<Range, List<String>> ranges = Caffeine.newBuilder().maximumSize(1_000).build();
+    private final Map<String, Repository> repositories = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    @Autowired
+    public ChangelogIndexer(AppConfiguration configuration, MongoTemplate template, @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        var changelog = configuration.getChangelog();
+        this.uris = changelog.getRepositories();
+        this.directory = changelog.getDirectory() == null ? configuration.getStoragePath().resolve("repositories") : changelog.getDirectory();
+        this.maximumCommits = changelog.getMaximumCommits();
+        this.template = template;
+        this.executor = executor;
+    }
+
+    /**
+     * Clones the repositories that are missing, a publish that needs one before it is done waits for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepare() {
+        this.uris.keySet().forEach(project -> this.executor.execute(() -> {
+            try {
+                this.open(project);
+            } catch (IOException exception) {
+                LOGGER.warn("Could not clone the repository of {}, retrying on the next publish", project, exception);
+            }
+        }));
+    }
+
+    public boolean supports(@NotNull String project) {
+        return this.uris.containsKey(project);
+    }
+
+    /**
+     * @param since commit of the previous build, without one only {@code head} itself is indexed
+     * @return hashes of the commits reachable from {@code head} but not from {@code since}, newest first
+     */
+    public @NotNull List<String> index(@NotNull String project, @Nullable String since, @NotNull String head) throws IOException {
+        var range = new Range(project, since, head);
+        var cached = this.ranges.getIfPresent(range);
+        if (cached != null) {
+            return cached;
+        }
+
+        var repository = this.repository(project, head);
+        var commits = new ArrayList<RevCommit>();
+        try (var walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(ObjectId.fromString(head)));
+            if (since != null && ObjectId.isId(since) && repository.getObjectDatabase().has(ObjectId.fromString(since))) {
+                walk.markUninteresting(walk.parseCommit(ObjectId.fromString(since)));
+            }
+            for (RevCommit commit : walk) {
+                commits.add(commit);
+                if (since == null || commits.size() >= this.maximumCommits) {
+                    break;
+                }
+            }
+        }
+        this.store(commits);
+
+        var hashes = commits.stream().map(RevCommit::getName).toList();
+        this.ranges.put(range, hashes);
+        return hashes;
+    }
+
+    private void store(@NotNull List<RevCommit> commits) {
+        if (commits.isEmpty()) {
+            return;
+        }
+        var operations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, Commit.class);
+        for (RevCommit commit : commits) {
+            operations.upsert(
+                    Query.query(Criteria.where("_id").is(commit.getName())),
+                    new Update()
+                            .setOnInsert("summary", commit.getShortMessage())
+                            .setOnInsert("message", commit.getFullMessage())
+                            .setOnInsert("timestamp", Instant.ofEpochSecond(commit.getCommitTime()))
+            );
+        }
+        operations.execute();
+    }
+
+    private @NotNull Repository repository(@NotNull String project, @NotNull String head) throws IOException {
+        synchronized (this.lock(project)) {
+            var repository = this.open(project);
+            if (!repository.getObjectDatabase().has(ObjectId.fromString(head))) {
+                try (var git = new Git(repository)) {
+                    git.fetch().setRemote("origin").call();
+                } catch (GitAPIException exception) {
+                    throw new IOException("Could not fetch the repository of " + project + " from " + this.uris.get(project), exception);
+                }
+            }
+            return repository;
+        }
+    }
+
+    /**
+     * Opens the repository of the project, cloning it first if it does not exist on disk yet.
+     */
+    private @NotNull Repository open(@NotNull String project) throws IOException {
+        var uri = this.uris.get(project);
+        if (uri == null) {
+            throw new IllegalArgumentException("No changelog repository for " + project);
+        }
+        synchronized (this.lock(project)) {
+            var repository = this.repositories.get(project);
+            if (repository != null) {
+                return repository;
+            }
+            var gitDirectory = this.directory.resolve(project + ".git");
+            if (!Files.isDirectory(gitDirectory)) {
+                try {
+                    Git.cloneRepository().setURI(uri).setDirectory(gitDirectory.toFile()).setBare(true).call().close();
+                } catch (GitAPIException exception) {
+                    throw new IOException("Could not clone the repository of " + project + " from " + uri, exception);
+                }
+            }
+            repository = new FileRepositoryBuilder().setGitDir(gitDirectory.toFile()).setMustExist(true).build();
+            this.repositories.put(project, repository);
+            return repository;
+        }
+    }
+
+    private @NotNull Object lock(@NotNull String project) {
+        return this.locks.computeIfAbsent(project, key -> new Object());
+    }
+
+    @PreDestroy
+    public void close() {
+        this.repositories.values().forEach(Repository::close);
+    }
+
+    private record Range(String project, @Nullable String since, String head) {}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.changelog;
+
+import de.rafael.bibliothek.database.model.Build;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the changes embedded in older builds into the {@code commits} collection, enabled with
+ * {@code app.migration.changes=true}. Every build keeps the hashes of its changes in {@code commits}, builds that already
+ * reference commits from a changelog repository only lose the embedded copy. Commits that already exist are left as they
+ * are, so a change shared by many builds is stored once and the migration can be run repeatedly.
+ *
+ * @author Rafael K.
+ * @since 20:31, 19.10.26
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "app.migration", name = "changes", havingValue = "true")
+public class ChangelogMigration implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangelogMigration.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate template;
+    private final Changelog changelog;
+
+    @Autowired
+    public ChangelogMigration(MongoTemplate template, Changelog changelog) {
+        this.template = template;
+        this.changelog = changelog;
+    }
+
+    @Override
+    public void run(ApplicationArguments arguments) {
+        var query = Query.query(Criteria.where("changes").exists(true));
+        query.fields().include("_id", "changes", "commits");
+        var batch = new ArrayList<Build>(BATCH_SIZE);
+        long builds = 0;
+        long changes = 0;
+
+        try (var stream = this.template.stream(query, Build.class)) {
+            for (var iterator = stream.iterator(); iterator.hasNext(); ) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    changes += this.migrate(batch);
+                    builds += batch.size();
+                    batch.clear();
+                    LOGGER.info("Moved the changes of {} builds", builds);
+                }
+            }
+        }
+
+        LOGGER.info("Changelog migration finished: {} builds migrated, {} embedded changes replaced", builds, changes);
+    }
+
+    /**
+     * @return number of embedded changes that were replaced by references
+     */
+    private long migrate(@NotNull List<Build> batch) {
+        // One upsert per distinct commit, the same change is usually embedded in several builds
+        var distinct = new LinkedHashMap<String, Build.Change>();
+        batch.stream()
+                .filter(build -> build.commits() == null || build.commits().isEmpty())
+                .flatMap(build -> embedded(build).stream())
+                .forEach(change -> distinct.putIfAbsent(change.commit(), change));
+        this.changelog.store(List.copyOf(distinct.values()));
+
+        long changes = 0;
+        var operations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, Build.class);
+        for (Build build : batch) {
+            var embedded = embedded(build);
+            var update = new Update().unset("changes");
+            if ((build.commits() == null || build.commits().isEmpty()) && !embedded.isEmpty()) {
+                update.set("commits", embedded.stream().map(Build.Change::commit).toList());
+            }
+            operations.updateOne(Query.query(Criteria.where("_id").is(build._id())), update);
+            changes += embedded.size();
+        }
+        operations.execute();
+        return changes;
+    }
+
+    private static @NotNull List<Build.Change> embedded(@NotNull Build build) {
+        return build.changes() == null ? List.of() : build.changes();
+    }
+
+}
@@ -23,26 +23,34 @@
  */
 package de.rafael.bibliothek.classes;
 
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
 import de.rafael.bibliothek.configuration.AppConfiguration;
 import de.rafael.bibliothek.database.model.Build;
 import de.rafael.bibliothek.database.model.Group;
 import de.rafael.bibliothek.database.model.Project;
 import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.projection.TimestampedName;
+import de.rafael.bibliothek.database.repository.BuildPath;
 import de.rafael.bibliothek.database.repository.BuildRepository;
 import de.rafael.bibliothek.database.repository.GroupRepository;
 import de.rafael.bibliothek.database.repository.ProjectRepository;
 import de.rafael.bibliothek.database.repository.VersionRepository;
 import de.rafael.bibliothek.throwables.BuildNotFound;
 import de.rafael.bibliothek.throwables.GroupNotFound;
+import de.rafael.bibliothek.throwables.InvalidParameter;
 import de.rafael.bibliothek.throwables.ProjectNotFound;
 import de.rafael.bibliothek.throwables.VersionNotFound;
 import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 public abstract class ApiController {
 
@@ -53,41 +61,76 @@ public abstract class ApiController {
     protected final VersionRepository versions;
     protected final GroupRepository groups;
     protected final BuildRepository builds;
+    protected final MetadataCache cache;
+    protected final ResponseCache responses;
 
-    public ApiController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
+    public ApiController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses) {
         this.configuration = configuration;
         this.projects = projects;
         this.versions = versions;
         this.groups = groups;
         this.builds = builds;
+        this.cache = cache;
+        this.responses = responses;
     }
 
-    protected <T> ResponseEntity<T> ok(CacheControl cache, T response) {
-        return ResponseEntity.ok().cacheControl(cache).body(response);
+    /**
+     * Serializes the response once and keeps it in the {@link ResponseCache}, following requests for the same path are served from there.
+     */
+    protected ResponseEntity<?> ok(CacheControl cache, Object response) {
+        var request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        return this.responses.store(request, cache, response).toResponseEntity(request);
+    }
+
+    /**
+     * Like {@link #ok(CacheControl, Object)}, but the response is not kept in the {@link ResponseCache}.
+     */
+    protected ResponseEntity<?> okUncached(CacheControl cache, Object response) {
+        var request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        return this.responses.render(request, cache, response).toResponseEntity(request);
     }
 
     protected Project findProject(@NotNull String name) {
-        return this.projects.findByName(name).orElseThrow(ProjectNotFound::new);
+        return this.cache.findProject(name).orElseThrow(ProjectNotFound::new);
     }
 
     protected Version findVersion(@NotNull Project project, @NotNull String name) {
-        return this.versions.findByProjectAndName(project._id(), name).orElseThrow(VersionNotFound::new);
+        return this.cache.findVersion(project, name).orElseThrow(VersionNotFound::new);
     }
 
     protected Group findGroup(@NotNull Project project, @NotNull String name) {
-        return this.groups.findByProjectAndName(project._id(), name).orElseThrow(GroupNotFound::new);
+        return this.cache.findGroup(project, name).orElseThrow(GroupNotFound::new);
     }
 
     protected Build findBuild(@NotNull Project project, @NotNull Version version, int number) {
-        return this.builds.findByProjectAndVersionAndNumber(project._id(), version._id(), number).orElseThrow(BuildNotFound::new);
+        return this.cache.findBuild(project, version, number).orElseThrow(BuildNotFound::new);
+    }
+
+    protected BuildPath findBuild(@NotNull String projectName, @NotNull String versionName, int number) {
+        var path = this.cache.resolveBuild(projectName, versionName, number).orElseThrow(ProjectNotFound::new);
+        if (path.version() == null) {
+            throw new VersionNotFound();
+        }
+        if (path.build() == null) {
+            throw new BuildNotFound();
+        }
+        return path;
+    }
+
+    protected Build.Channel findChannel(@NotNull String name) {
+        try {
+            return Build.Channel.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidParameter("Unknown channel: " + name);
+        }
     }
 
-    protected Stream<Group> findGroupsAsStream(@NotNull Project project) {
-        return this.groups.findAllByProject(project._id()).stream().sorted(Group.COMPARATOR);
+    protected Stream<String> findGroupNamesAsStream(@NotNull Project project) {
+        return this.groups.findAllNamesByProject(project._id()).stream().map(TimestampedName::name);
     }
 
-    protected Stream<Version> findVersionsAsStream(@NotNull Project project) {
-        return this.versions.findAllByProject(project._id()).stream().sorted(Version.COMPARATOR);
+    protected Stream<String> findVersionNamesAsStream(@NotNull Project project) {
+        return this.versions.findAllNamesByProject(project._id()).stream().map(TimestampedName::name);
     }
 
     protected List<Project> findProjects() {
@@ -23,11 +23,20 @@
  */
 package de.rafael.bibliothek.configuration;
 
+import java.net.URI;
 import java.net.URL;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -43,5 +52,201 @@ public class AppConfiguration {
 
     private URL baseUrl;
     private Path storagePath;
+    private int queryThreads = 16;
+    /**
+     * How far back {@code BuildWatcher} looks again on every poll, for builds written with a lagging client clock.
+     */
+    private Duration watchOverlap = Duration.ofMinutes(1);
+    private Cache cache = new Cache();
+    private Storage storage = new Storage();
+    private Downloads downloads = new Downloads();
+    private RateLimit rateLimit = new RateLimit();
+    private Ingest ingest = new Ingest();
+    private Importer importer = new Importer();
+    private Changelog changelog = new Changelog();
+
+    @Getter
+    @Setter
+    public static class Cache {
+
+        private Entry projects = new Entry(1_000, Duration.ofHours(1));
+        private Entry versions = new Entry(10_000, Duration.ofHours(1));
+        private Entry groups = new Entry(10_000, Duration.ofHours(1));
+        private Entry builds = new Entry(100_000, Duration.ofHours(6));
+        private Responses responses = new Responses();
+        private Entry downloads = new Entry(100_000, Duration.ofHours(6));
+        private Duration summaryMaxAge = Duration.ofMinutes(10);
+        private Artifacts artifacts = new Artifacts();
+
+    }
+
+    /**
+     * Off-heap copies of frequently downloaded files, counted against {@code -XX:MaxDirectMemorySize}.
+     */
+    @Getter
+    @Setter
+    public static class Artifacts {
+
+        private boolean enabled = false;
+        private DataSize maximumSize = DataSize.ofMegabytes(256);
+        private DataSize maximumFileSize = DataSize.ofMegabytes(64);
+        private int admissionRequests = 3;
+        private boolean warmup = true;
+
+    }
+
+    /**
+     * Serialized metadata responses, bounded by the bytes of their identity and gzip bodies.
+     */
+    @Getter
+    @Setter
+    public static class Responses {
+
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+        private Duration ttl = Duration.ofHours(1);
+
+    }
+
+    @Getter
+    @Setter
+    public static class Downloads {
+
+        /**
+         * Hands files to Tomcat's sendfile where supported
+         */
+        private boolean sendfile = true;
+        /**
+         * Writes everything sendfile does not cover with non-blocking I/O instead of on the request thread
+         */
+        private boolean async = true;
+        private Duration asyncTimeout = Duration.ofHours(1);
+
+    }
+
+    /**
+     * Clients are identified by their address, behind a proxy this relies on {@code server.forward-headers-strategy}.
+     */
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        /**
+         * API requests per second, downloads included
+         */
+        private Limit requestsPerClient = new Limit(false, 20, 200);
+        private Limit requests = new Limit(false, 2_000, 20_000);
+        /**
+         * Download bytes per second, downloads are slowed down instead of rejected
+         */
+        private Limit bytesPerClient = new Limit(false, 10L * 1024 * 1024, 32L * 1024 * 1024);
+        private Limit bytes = new Limit(false, 100L * 1024 * 1024, 256L * 1024 * 1024);
+        private long maximumClients = 100_000;
+
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        private boolean enabled;
+        private long rate;
+        private long burst;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Ingest {
+
+        /**
+         * Bearer token for publishing builds, publishing is disabled without one
+         */
+        private String token;
+        private DataSize maximumFileSize = DataSize.ofGigabytes(1);
+
+    }
+
+    /**
+     * Bulk import of a {@code project/version/build/*.jar} tree, run with {@code app.migration.import=true}
+     */
+    @Getter
+    @Setter
+    public static class Importer {
+
+        private Path source;
+        /**
+         * Hashing parallelism
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+        /**
+         * Builds written per bulk write
+         */
+        private int batchSize = 1_000;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Changelog {
+
+        /**
+         * Git URI per project, cloned bare into {@code directory} and fetched when a build references an unknown commit
+         */
+        private Map<String, String> repositories = new HashMap<>();
+        /**
+         * Defaults to {@code <storage-path>/repositories}
+         */
+        private Path directory;
+        /**
+         * Commits indexed per build at most, bounds publishing after long gaps
+         */
+        private int maximumCommits = 1_000;
+        private long cachedCommits = 100_000;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Storage {
+
+        /**
+         * {@code sharded} or {@code s3}
+         */
+        private String type = "sharded";
+        /**
+         * Roots of the sharded store, defaults to {@code app.storage-path}
+         */
+        private List<Path> roots = new ArrayList<>();
+        private int virtualNodes = 128;
+        private S3 s3 = new S3();
+
+    }
+
+    @Getter
+    @Setter
+    public static class S3 {
+
+        private URI endpoint;
+        private String region = "us-east-1";
+        private String bucket;
+        private String prefix = "blobs/";
+        private String accessKey;
+        private String secretKey;
+        private boolean pathStyleAccess = true;
+
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+
+        private long maximumSize;
+        private Duration ttl;
+
+    }
 
 }
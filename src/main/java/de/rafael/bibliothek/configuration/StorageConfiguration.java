@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.configuration;
+
+import de.rafael.bibliothek.storage.ArtifactStore;
+import de.rafael.bibliothek.storage.S3ArtifactStore;
+import de.rafael.bibliothek.storage.ShardedArtifactStore;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Rafael K.
+ * @since 11:20, 19.10.26
+ */
+
+@Configuration
+public class StorageConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageConfiguration.class);
+
+    private final AppConfiguration configuration;
+
+    @Autowired
+    public StorageConfiguration(AppConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "sharded", matchIfMissing = true)
+    public ShardedArtifactStore shardedArtifactStore() {
+        var storage = this.configuration.getStorage();
+        var roots = storage.getRoots().isEmpty() ? List.of(this.configuration.getStoragePath()) : storage.getRoots();
+        if (!roots.equals(List.of(this.configuration.getStoragePath()))) {
+            warnInsertBuild();
+        }
+        return new ShardedArtifactStore(roots, storage.getVirtualNodes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "s3")
+    public ArtifactStore s3ArtifactStore() {
+        warnInsertBuild();
+        var s3 = this.configuration.getStorage().getS3();
+        return new S3ArtifactStore(S3ArtifactStore.client(s3), s3.getBucket(), s3.getPrefix());
+    }
+
+    /**
+     * insertBuild.js writes blobs below the storage path directly, this store would never find them.
+     */
+    private static void warnInsertBuild() {
+        LOGGER.warn("Builds inserted with cli/insertBuild.js are not served by this storage, publish through the ingest endpoint (cli/publishBuild.sh)");
+    }
+
+}
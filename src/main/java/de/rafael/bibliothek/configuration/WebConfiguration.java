@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.configuration;
+
+import de.rafael.bibliothek.cache.ResponseCacheInterceptor;
+import de.rafael.bibliothek.changelog.Changelog;
+import de.rafael.bibliothek.ratelimit.RateLimitInterceptor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * @author Rafael K.
+ * @since 17:08, 18.10.26
+ */
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final RateLimitInterceptor rateLimit;
+    private final ResponseCacheInterceptor responseCache;
+
+    @Autowired
+    public WebConfiguration(RateLimitInterceptor rateLimit, ResponseCacheInterceptor responseCache) {
+        this.rateLimit = rateLimit;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public void addFormatters(@NotNull FormatterRegistry registry) {
+        registry.addConverter(String.class, Changelog.Detail.class, Changelog.Detail::of);
+    }
+
+    @Override
+    public void addInterceptors(@NotNull InterceptorRegistry registry) {
+        registry.addInterceptor(this.rateLimit)
+                .addPathPatterns("/v1/**");
+        registry.addInterceptor(this.responseCache)
+                .addPathPatterns("/v1/**")
+                .excludePathPatterns("/v1/projects/*/versions/*/builds/*/downloads/**", "/v1/blobs/**", "/v1/projects/*/versions/*/stats");
+    }
+
+}
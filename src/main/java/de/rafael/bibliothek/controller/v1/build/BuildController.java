@@ -23,6 +23,10 @@
  */
 package de.rafael.bibliothek.controller.v1.build;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.changelog.Changelog;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
 import de.rafael.bibliothek.database.model.Build;
@@ -43,6 +47,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -56,16 +61,20 @@ public class BuildController extends ApiController {
 
     private static final CacheControl CACHE = defaultCache();
 
+    private final Changelog changelog;
+
     @Autowired
-    public BuildController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-        super(configuration, projects, versions, groups, builds);
+    public BuildController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, Changelog changelog) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.changelog = changelog;
     }
 
     @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/builds/{build:" + Build.PATTERN + "}")
-    public ResponseEntity<?> build(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @PathVariable("build") @Pattern(regexp = Build.PATTERN) int buildNumber) {
-        var project = super.findProject(projectName);
-        var version = super.findVersion(project, versionName);
-        var build = super.findBuild(project, version, buildNumber);
+    public ResponseEntity<?> build(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @PathVariable("build") @Pattern(regexp = Build.PATTERN) int buildNumber, @RequestParam(value = "changes", defaultValue = "full") Changelog.Detail changes) {
+        var path = super.findBuild(projectName, versionName, buildNumber);
+        var project = path.project();
+        var version = path.version();
+        var build = path.build();
         return ok(
                 CACHE,
                 new Response(
@@ -76,12 +85,12 @@ public class BuildController extends ApiController {
                         build.timestamp(),
                         build.channel(),
                         build.displayMode(),
-                        build.changes(),
+                        this.changelog.changes(build, changes),
                         build.downloads()
                 )
         );
     }
 
-    private record Response(String project_id, String project_name, String version, int build, Instant timestamp, Build.Channel channel, Build.DisplayMode displayMode, List<Build.Change> changes, Map<String, Build.Download> downloads) {}
+    private record Response(String project_id, String project_name, String version, int build, Instant timestamp, Build.Channel channel, Build.DisplayMode displayMode, @JsonInclude(JsonInclude.Include.NON_NULL) List<Build.Change> changes, Map<String, Build.Download> downloads) {}
 
 }
@@ -23,6 +23,11 @@
  */
 package de.rafael.bibliothek.controller.v1.build;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.changelog.Changelog;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
 import de.rafael.bibliothek.database.model.Build;
@@ -34,16 +39,23 @@ import de.rafael.bibliothek.database.repository.ProjectRepository;
 import de.rafael.bibliothek.database.repository.VersionRepository;
 import jakarta.validation.constraints.Pattern;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * @author Rafael K.
@@ -56,37 +68,111 @@ public class BuildsController extends ApiController {
 
     private static final CacheControl CACHE = defaultCache();
 
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final Sort ORDER = Sort.by(Sort.Direction.ASC, "number");
+
+    private final ObjectMapper json;
+    private final Changelog changelog;
+
     @Autowired
-    public BuildsController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-        super(configuration, projects, versions, groups, builds);
+    public BuildsController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, ObjectMapper json, Changelog changelog) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.json = json;
+        this.changelog = changelog;
     }
 
+    /**
+     * Lists the builds of a version. Passing {@code after} or {@code limit} switches to pages of at most {@value MAX_LIMIT}
+     * builds ordered by number, {@code next} is the cursor for the following page.
+     * The unpaginated listing grows with the version and is not kept in the response cache.
+     */
     @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/builds")
-    public ResponseEntity<?> build(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName) {
+    public ResponseEntity<?> build(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @RequestParam(value = "after", required = false) Integer after, @RequestParam(value = "limit", required = false) Integer limit, @RequestParam(value = "changes", defaultValue = "full") Changelog.Detail changes) {
         var project = super.findProject(projectName);
         var version = super.findVersion(project, versionName);
-        var builds = super.builds.findAllByProjectAndVersion(project._id(), version._id()).stream().map(build ->
-                new ResponseBuild(
-                        build.number(),
-                        build.timestamp(),
-                        build.channel(),
-                        build.displayMode(),
-                        build.changes(),
-                        build.downloads()
-                )).toList();
+        if (after == null && limit == null) {
+            var builds = this.responses(super.builds.findAllByProjectAndVersion(project._id(), version._id()), changes);
+            return okUncached(
+                    CACHE,
+                    new Response(
+                        project.name(),
+                        project.friendlyName(),
+                        version.name(),
+                        builds
+                    )
+            );
+        }
+
+        var size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        var builds = this.responses(super.builds.findAllByProjectAndVersionAndNumberGreaterThan(project._id(), version._id(), after == null ? Integer.MIN_VALUE : after, PageRequest.of(0, size, ORDER)), changes);
         return ok(
                 CACHE,
-                new Response(
-                    project.name(),
-                    project.friendlyName(),
-                    version.name(),
-                    builds
+                new PageResponse(
+                        project.name(),
+                        project.friendlyName(),
+                        version.name(),
+                        builds,
+                        builds.size() < size ? null : builds.get(builds.size() - 1).build()
                 )
         );
     }
 
+    /**
+     * Streams all builds of a version as newline delimited JSON straight from the database cursor.
+     * The cursor is read in batches, so the changes of a whole batch are loaded with one query.
+     */
+    @GetMapping(value = "/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/builds", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @RequestParam(value = "changes", defaultValue = "full") Changelog.Detail changes) {
+        var project = super.findProject(projectName);
+        var version = super.findVersion(project, versionName);
+        StreamingResponseBody body = output -> {
+            try (var builds = super.builds.streamAllByProjectAndVersion(project._id(), version._id(), ORDER); var generator = this.json.createGenerator(output)) {
+                generator.setRootValueSeparator(null);
+                var batch = new ArrayList<Build>(STREAM_BATCH_SIZE);
+                for (var iterator = builds.iterator(); iterator.hasNext(); ) {
+                    batch.add(iterator.next());
+                    if (batch.size() < STREAM_BATCH_SIZE && iterator.hasNext()) {
+                        continue;
+                    }
+                    this.changelog.prefetch(batch, changes);
+                    for (Build build : batch) {
+                        this.json.writeValue(generator, ResponseBuild.of(build, this.changelog.changes(build, changes)));
+                        generator.writeRaw('\n');
+                    }
+                    batch.clear();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .cacheControl(CACHE)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private @NotNull List<ResponseBuild> responses(@NotNull List<Build> builds, @NotNull Changelog.Detail changes) {
+        this.changelog.prefetch(builds, changes);
+        return builds.stream().map(build -> ResponseBuild.of(build, this.changelog.changes(build, changes))).toList();
+    }
+
     private record Response(String project_id, String project_name, String version, List<ResponseBuild> builds) {}
 
-    private record ResponseBuild(int build, Instant timestamp, Build.Channel channel, Build.DisplayMode displayMode, List<Build.Change> changes, Map<String, Build.Download> downloads) {}
+    private record PageResponse(String project_id, String project_name, String version, List<ResponseBuild> builds, Integer next) {}
+
+    private record ResponseBuild(int build, Instant timestamp, Build.Channel channel, Build.DisplayMode displayMode, @JsonInclude(JsonInclude.Include.NON_NULL) List<Build.Change> changes, Map<String, Build.Download> downloads) {
+
+        private static @NotNull ResponseBuild of(@NotNull Build build, @Nullable List<Build.Change> changes) {
+            return new ResponseBuild(
+                    build.number(),
+                    build.timestamp(),
+                    build.channel(),
+                    build.displayMode(),
+                    changes,
+                    build.downloads()
+            );
+        }
+
+    }
 
 }
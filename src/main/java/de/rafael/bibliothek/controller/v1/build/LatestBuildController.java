@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.controller.v1.build;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.changelog.Changelog;
+import de.rafael.bibliothek.classes.ApiController;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.GroupRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.throwables.BuildNotFound;
+import jakarta.validation.constraints.Pattern;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the latest and the promoted build of a version from its {@link de.rafael.bibliothek.database.model.VersionSummary}.
+ *
+ * @author Rafael K.
+ * @since 19:40, 18.10.26
+ */
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class LatestBuildController extends ApiController {
+
+    private static final CacheControl CACHE = defaultCache();
+
+    private final Changelog changelog;
+
+    @Autowired
+    public LatestBuildController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, Changelog changelog) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.changelog = changelog;
+    }
+
+    @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/latest")
+    public ResponseEntity<?> latest(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @RequestParam(value = "channel", required = false) String channelName, @RequestParam(value = "changes", defaultValue = "full") Changelog.Detail changes) {
+        var project = super.findProject(projectName);
+        var version = super.findVersion(project, versionName);
+        var summary = super.cache.findSummary(version);
+        var number = channelName == null ? summary.latest() : summary.latest(super.findChannel(channelName));
+        return respond(project, version, number, changes);
+    }
+
+    @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/promoted")
+    public ResponseEntity<?> promoted(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @RequestParam(value = "changes", defaultValue = "full") Changelog.Detail changes) {
+        var project = super.findProject(projectName);
+        var version = super.findVersion(project, versionName);
+        return respond(project, version, super.cache.findSummary(version).promoted(), changes);
+    }
+
+    private ResponseEntity<?> respond(@NotNull Project project, @NotNull Version version, Integer number, @NotNull Changelog.Detail changes) {
+        if (number == null) {
+            throw new BuildNotFound();
+        }
+        var build = super.findBuild(project, version, number);
+        return ok(
+                CACHE,
+                new Response(
+                        project.name(),
+                        project.friendlyName(),
+                        version.name(),
+                        build.number(),
+                        build.timestamp(),
+                        build.channel(),
+                        build.displayMode(),
+                        this.changelog.changes(build, changes),
+                        build.downloads()
+                )
+        );
+    }
+
+    private record Response(String project_id, String project_name, String version, int build, Instant timestamp, Build.Channel channel, Build.DisplayMode displayMode, @JsonInclude(JsonInclude.Include.NON_NULL) List<Build.Change> changes, Map<String, Build.Download> downloads) {}
+
+}
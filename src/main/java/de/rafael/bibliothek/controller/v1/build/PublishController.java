@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.controller.v1.build;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.classes.ApiController;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Group;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.GroupRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.ingest.BuildPublisher;
+import de.rafael.bibliothek.throwables.InvalidUpload;
+import de.rafael.bibliothek.throwables.Unauthorized;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Pattern;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.jakarta.JakartaServletFileUpload;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Publishes a build from a {@code multipart/form-data} upload, authenticated with {@code app.ingest.token}.
+ * Every file part is a download, its field name is the download type and its file name the name offered to clients.
+ * The optional fields {@code friendlyName}, {@code group}, {@code number}, {@code channel}, {@code commit},
+ * {@code changes} (JSON array) and {@code sha256.<type>} describe the build. With a changelog repository configured for
+ * the project, the changes are indexed from {@code commit} and {@code changes} is ignored.
+ * Parts are read straight from the request as they arrive, Spring's multipart support is disabled so nothing is
+ * buffered before this controller sees it. Files are only staged while reading, a rejected request stores nothing.
+ *
+ * @author Rafael K.
+ * @since 16:24, 19.10.26
+ */
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class PublishController extends ApiController {
+
+    @Language("RegExp")
+    private static final String TYPE = "[a-z0-9:_-]+";
+    private static final String BEARER = "Bearer ";
+    private static final String CHECKSUM = "sha256.";
+    @Language("RegExp")
+    private static final String COMMIT = "[a-f0-9]{40}";
+    private static final TypeReference<List<Build.Change>> CHANGES = new TypeReference<>() {};
+
+    private final ObjectMapper json;
+    private final BuildPublisher publisher;
+    private final JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+
+    @Autowired
+    public PublishController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, ObjectMapper json, BuildPublisher publisher) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.json = json;
+        this.publisher = publisher;
+        this.upload.setFileSizeMax(configuration.getIngest().getMaximumFileSize().toBytes());
+    }
+
+    @PostMapping(
+            value = "/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/builds",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE
+    )
+    public ResponseEntity<?> publish(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, HttpServletRequest request) throws IOException {
+        this.authorize(request);
+
+        var fields = new HashMap<String, String>();
+        var parts = new LinkedHashMap<String, Part>();
+        try {
+            try {
+                var items = this.upload.getItemIterator(request);
+                while (items.hasNext()) {
+                    var item = items.next();
+                    try (var input = item.getInputStream()) {
+                        if (item.isFormField()) {
+                            fields.put(item.getFieldName(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                            continue;
+                        }
+                        var type = item.getFieldName();
+                        var name = item.getName() == null || item.getName().isEmpty() ? null : item.getName();
+                        if (type == null || !type.matches(TYPE) || parts.containsKey(type)) {
+                            throw new InvalidUpload("Invalid or duplicate download type: " + type);
+                        }
+                        if (name != null && !name.matches(Build.Download.PATTERN)) {
+                            throw new InvalidUpload("Invalid file name: " + name);
+                        }
+                        parts.put(type, new Part(name, this.publisher.stage(input)));
+                    }
+                }
+            } catch (FileUploadException exception) {
+                throw new InvalidUpload(exception.getMessage(), exception);
+            }
+
+            // Everything is validated before the first file reaches the store
+            if (parts.isEmpty()) {
+                throw new InvalidUpload("No downloads.");
+            }
+            fields.forEach((field, value) -> {
+                if (!field.startsWith(CHECKSUM)) {
+                    return;
+                }
+                var part = parts.get(field.substring(CHECKSUM.length()));
+                if (part == null || !part.staged().sha256().equals(value.trim().toLowerCase(Locale.ROOT))) {
+                    throw new InvalidUpload("Checksum mismatch for " + field);
+                }
+            });
+            var publication = new BuildPublisher.Publication(
+                    projectName,
+                    fields.getOrDefault("friendlyName", projectName),
+                    this.field(fields, "group", Group.PATTERN, versionName),
+                    versionName,
+                    fields.containsKey("number") ? this.number(fields.get("number")) : null,
+                    this.channel(fields.getOrDefault("channel", Build.Channel.DEFAULT.name())),
+                    this.changes(fields.get("changes")),
+                    fields.containsKey("commit") ? this.field(fields, "commit", COMMIT, "") : null
+            );
+
+            var downloads = new LinkedHashMap<String, BuildPublisher.Upload>();
+            for (Map.Entry<String, Part> entry : parts.entrySet()) {
+                downloads.put(entry.getKey(), new BuildPublisher.Upload(entry.getValue().name(), this.publisher.store(entry.getValue().staged())));
+            }
+            var build = this.publisher.publish(publication, downloads);
+            return ResponseEntity.status(HttpStatus.CREATED).body(new Response(projectName, versionName, build.number(), build.channel(), build.downloads()));
+        } finally {
+            for (Part part : parts.values()) {
+                part.staged().close();
+            }
+        }
+    }
+
+    private void authorize(@NotNull HttpServletRequest request) {
+        var token = super.configuration.getIngest().getToken();
+        var header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (token == null || token.isEmpty() || header == null || !header.startsWith(BEARER)) {
+            throw new Unauthorized();
+        }
+        // Constant time, the comparison must not reveal how much of the token matched
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), header.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8))) {
+            throw new Unauthorized();
+        }
+    }
+
+    private @NotNull String field(@NotNull Map<String, String> fields, @NotNull String name, @NotNull @Language("RegExp") String pattern, @NotNull String fallback) {
+        var value = fields.getOrDefault(name, fallback);
+        if (!value.matches(pattern)) {
+            throw new InvalidUpload("Invalid " + name + ": " + value);
+        }
+        return value;
+    }
+
+    private int number(@NotNull String value) {
+        try {
+            var number = Integer.parseInt(value.trim());
+            if (number <= 0) {
+                throw new InvalidUpload("Build numbers start at 1.");
+            }
+            return number;
+        } catch (NumberFormatException exception) {
+            throw new InvalidUpload("Invalid build number: " + value);
+        }
+    }
+
+    private @NotNull Build.Channel channel(@NotNull String value) {
+        try {
+            return Build.Channel.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidUpload("Unknown channel: " + value);
+        }
+    }
+
+    private @NotNull List<Build.Change> changes(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        try {
+            return this.json.readValue(value, CHANGES);
+        } catch (JsonProcessingException exception) {
+            throw new InvalidUpload("Invalid changes: " + exception.getOriginalMessage());
+        }
+    }
+
+    private record Part(String name, BuildPublisher.Staged staged) {}
+
+    private record Response(String project_id, String version, int build, Build.Channel channel, Map<String, Build.Download> downloads) {}
+
+}
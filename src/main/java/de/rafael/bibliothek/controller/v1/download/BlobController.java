@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.controller.v1.download;
+
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.classes.ApiController;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.GroupRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.download.DownloadRoutes;
+import de.rafael.bibliothek.download.DownloadWriter;
+import de.rafael.bibliothek.storage.Blobs;
+import de.rafael.bibliothek.throwables.DownloadFailed;
+import de.rafael.bibliothek.throwables.DownloadNotFound;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Pattern;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves files by their sha256, the content behind a URL never changes so clients and proxies may cache it forever.
+ *
+ * @author Rafael K.
+ * @since 23:18, 18.10.26
+ */
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class BlobController extends ApiController {
+
+    private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final DownloadRoutes routes;
+    private final DownloadWriter writer;
+
+    @Autowired
+    public BlobController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, DownloadRoutes routes, DownloadWriter writer) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.routes = routes;
+        this.writer = writer;
+    }
+
+    @GetMapping(
+            value = "/v1/blobs/{sha256:" + Blobs.PATTERN + "}",
+            produces = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    MediaType.APPLICATION_OCTET_STREAM_VALUE
+            }
+    )
+    public void blob(@PathVariable("sha256") @Pattern(regexp = Blobs.PATTERN) String sha256, HttpServletRequest request, HttpServletResponse response) {
+        var route = this.routes.findBlob(sha256);
+        try {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE.getHeaderValue());
+            this.writer.serve(request, response, route, MediaType.APPLICATION_OCTET_STREAM);
+        } catch (NoSuchFileException exception) {
+            this.routes.invalidateBlob(sha256);
+            throw new DownloadNotFound();
+        } catch (IOException exception) {
+            throw new DownloadFailed(exception);
+        }
+    }
+
+}
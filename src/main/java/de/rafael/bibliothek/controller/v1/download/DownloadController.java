@@ -23,6 +23,8 @@
  */
 package de.rafael.bibliothek.controller.v1.download;
 
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
 import de.rafael.bibliothek.database.model.Build;
@@ -32,16 +34,17 @@ import de.rafael.bibliothek.database.repository.BuildRepository;
 import de.rafael.bibliothek.database.repository.GroupRepository;
 import de.rafael.bibliothek.database.repository.ProjectRepository;
 import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.download.DownloadRoutes;
+import de.rafael.bibliothek.download.DownloadWriter;
+import de.rafael.bibliothek.stats.DownloadCounter;
 import de.rafael.bibliothek.throwables.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.Pattern;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.Map;
+import java.nio.file.NoSuchFileException;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -59,9 +62,16 @@ public class DownloadController extends ApiController {
 
     private static final CacheControl CACHE = defaultCache();
 
+    private final DownloadRoutes routes;
+    private final DownloadWriter writer;
+    private final DownloadCounter counter;
+
     @Autowired
-    public DownloadController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-        super(configuration, projects, versions, groups, builds);
+    public DownloadController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, DownloadRoutes routes, DownloadWriter writer, DownloadCounter counter) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.routes = routes;
+        this.writer = writer;
+        this.counter = counter;
     }
 
     @GetMapping(
@@ -71,45 +81,34 @@ public class DownloadController extends ApiController {
                     "application/java-archive"
             }
     )
-    public ResponseEntity<?> download(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @PathVariable("build") @Pattern(regexp = Build.PATTERN) int buildNumber, @PathVariable("download") @Pattern(regexp = Build.Download.PATTERN) String downloadName) {
+    public void download(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName, @PathVariable("build") @Pattern(regexp = Build.PATTERN) int buildNumber, @PathVariable("download") @Pattern(regexp = Build.Download.PATTERN) String downloadName, HttpServletRequest request, HttpServletResponse response) {
+        var route = this.routes.find(projectName, versionName, buildNumber, downloadName, () -> super.findBuild(projectName, versionName, buildNumber));
         try {
-            var project = super.findProject(projectName);
-            var version = super.findVersion(project, versionName);
-            var build = super.findBuild(project, version, buildNumber);
-            var filteredDownloads = build.downloads().entrySet().stream()
-                    .filter(entry -> entry.getValue().name().equals(downloadName))
-                    .toList();
-            for (Map.Entry<String, Build.Download> entry : filteredDownloads) {
-                return new JavaArchive(
-                        this.configuration.getStoragePath()
-                                .resolve(project.name())
-                                .resolve(version.name())
-                                .resolve(String.valueOf(build.number()))
-                                .resolve(entry.getValue().name()),
-                        CACHE
-                );
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE.getHeaderValue());
+            this.writer.serve(request, response, route, JAVA_ARCHIVE);
+            if (isDownload(request, response)) {
+                this.counter.increment(projectName, versionName, buildNumber, downloadName);
             }
+        } catch (NoSuchFileException exception) {
+            this.routes.invalidate(projectName, versionName, buildNumber, downloadName);
             throw new DownloadNotFound();
-        } catch (Throwable throwable) {
-            throw new DownloadFailed(throwable);
+        } catch (IOException exception) {
+            throw new DownloadFailed(exception);
         }
     }
 
-    private static class JavaArchive extends ResponseEntity<FileSystemResource> {
-
-        public JavaArchive(Path path, CacheControl cache) throws IOException {
-            super(new FileSystemResource(path), headersFor(path, cache), HttpStatus.OK);
-        }
-
-        private static @NotNull HttpHeaders headersFor(final @NotNull Path path, final CacheControl cache) throws IOException {
-            final HttpHeaders headers = new HttpHeaders();
-            headers.setCacheControl(cache);
-            headers.setContentDisposition(ContentDisposition.attachment().filename(path.getFileName().toString(), StandardCharsets.UTF_8).build());
-            headers.setContentType(JAVA_ARCHIVE);
-            headers.setLastModified(Files.getLastModifiedTime(path).toInstant());
-            return headers;
-        }
-
+    /**
+     * Resumed downloads and 304s are not counted, only responses containing the start of the file.
+     */
+    private static boolean isDownload(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response) {
+        return switch (response.getStatus()) {
+            case HttpServletResponse.SC_OK -> true;
+            case HttpServletResponse.SC_PARTIAL_CONTENT -> {
+                var range = request.getHeader(HttpHeaders.RANGE);
+                yield range != null && range.startsWith("bytes=0-");
+            }
+            default -> false;
+        };
     }
 
 }
@@ -1,25 +1,43 @@
 package de.rafael.bibliothek.controller.v1.group;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.changelog.Changelog;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
 import de.rafael.bibliothek.database.model.Group;
 import de.rafael.bibliothek.database.model.Project;
 import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.projection.LatestBuilds;
+import de.rafael.bibliothek.database.projection.TimestampedName;
 import de.rafael.bibliothek.database.repository.BuildRepository;
 import de.rafael.bibliothek.database.repository.GroupRepository;
 import de.rafael.bibliothek.database.repository.ProjectRepository;
 import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.throwables.InvalidParameter;
 import jakarta.validation.constraints.Pattern;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Rafael K.
@@ -32,16 +50,22 @@ public class GroupController extends ApiController {
 
     private static final CacheControl CACHE = defaultCache();
 
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "number");
+    private static final Sort VERSION_ORDER = Sort.by(Sort.Direction.ASC, "timestamp", "name");
+
+    private final Changelog changelog;
+
     @Autowired
-    public GroupController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-        super(configuration, projects, versions, groups, builds);
+    public GroupController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, Changelog changelog) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.changelog = changelog;
     }
 
     @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/group/{group:" + Group.PATTERN + "}")
     public ResponseEntity<?> group(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("group") @Pattern(regexp = Group.PATTERN) String groupId) {
         var project = super.findProject(projectName);
         var group = super.findGroup(project, groupId);
-        var versions = super.versions.findAllByProjectAndGroup(project._id(), group._id()).stream().map(Version::name).toList();
+        var versions = super.versions.findAllNamesByProjectAndGroup(project._id(), group._id()).stream().map(TimestampedName::name).toList();
         return ok(
                 CACHE,
                 new Response(
@@ -53,6 +77,79 @@ public class GroupController extends ApiController {
         );
     }
 
+    /**
+     * Lists the builds of every version in a group with one {@code $in} query, optionally only the newest {@code limit}
+     * builds per version of one channel. The limit is applied by MongoDB, older builds are never loaded.
+     */
+    @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/group/{group:" + Group.PATTERN + "}/builds")
+    public ResponseEntity<?> builds(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("group") @Pattern(regexp = Group.PATTERN) String groupId, @RequestParam(value = "channel", required = false) String channelName, @RequestParam(value = "limit", required = false) Integer limit, @RequestParam(value = "changes", defaultValue = "full") Changelog.Detail changes) {
+        var project = super.findProject(projectName);
+        var group = super.findGroup(project, groupId);
+        var versions = super.versions.findAllByProjectAndGroup(project._id(), group._id(), VERSION_ORDER);
+        var versionIds = versions.stream().map(Version::_id).toList();
+        var channel = channelName == null ? null : super.findChannel(channelName);
+
+        Map<ObjectId, List<Build>> grouped = new LinkedHashMap<>();
+        versions.forEach(version -> grouped.put(version._id(), new ArrayList<>()));
+        if (limit == null) {
+            var builds = channel == null
+                    ? super.builds.findAllByProjectAndVersionIn(project._id(), versionIds, OLDEST_FIRST)
+                    : super.builds.findAllByProjectAndVersionInAndChannel(project._id(), versionIds, channel, OLDEST_FIRST);
+            for (Build build : builds) {
+                var list = grouped.get(build.version());
+                if (list != null) {
+                    list.add(build);
+                }
+            }
+        } else {
+            if (limit < 1) {
+                throw new InvalidParameter("limit has to be at least 1");
+            }
+            // MongoDB keeps only the newest builds of every version, the others are never transferred
+            var latest = channel == null
+                    ? super.builds.findLatestByProjectAndVersionIn(project._id(), versionIds, limit)
+                    : super.builds.findLatestByProjectAndVersionInAndChannel(project._id(), versionIds, channel, limit);
+            for (LatestBuilds builds : latest) {
+                var list = grouped.get(builds.version());
+                if (list != null) {
+                    list.addAll(builds.builds());
+                    Collections.reverse(list);
+                }
+            }
+        }
+        // Only the commits of the builds that are returned
+        this.changelog.prefetch(grouped.values().stream().flatMap(List::stream).toList(), changes);
+
+        return ok(
+                CACHE,
+                new BuildsResponse(
+                        project.name(),
+                        project.friendlyName(),
+                        group.name(),
+                        versions.stream().map(version -> new ResponseVersion(version.name(), grouped.get(version._id()).stream().map(build -> ResponseBuild.of(build, this.changelog.changes(build, changes))).toList())).toList()
+                )
+        );
+    }
+
     private record Response(String project_id, String project_name, String group, List<String> versions) {}
 
+    private record BuildsResponse(String project_id, String project_name, String group, List<ResponseVersion> versions) {}
+
+    private record ResponseVersion(String version, List<ResponseBuild> builds) {}
+
+    private record ResponseBuild(int build, Instant timestamp, Build.Channel channel, Build.DisplayMode displayMode, @JsonInclude(JsonInclude.Include.NON_NULL) List<Build.Change> changes, Map<String, Build.Download> downloads) {
+
+        private static @NotNull ResponseBuild of(@NotNull Build build, @Nullable List<Build.Change> changes) {
+            return new ResponseBuild(
+                    build.number(),
+                    build.timestamp(),
+                    build.channel(),
+                    build.displayMode(),
+                    changes,
+                    build.downloads()
+            );
+        }
+
+    }
+
 }
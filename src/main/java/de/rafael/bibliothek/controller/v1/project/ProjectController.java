@@ -23,18 +23,22 @@
  */
 package de.rafael.bibliothek.controller.v1.project;
 
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
-import de.rafael.bibliothek.database.model.Group;
+import de.rafael.bibliothek.configuration.ExecutorConfiguration;
 import de.rafael.bibliothek.database.model.Project;
-import de.rafael.bibliothek.database.model.Version;
 import de.rafael.bibliothek.database.repository.BuildRepository;
 import de.rafael.bibliothek.database.repository.GroupRepository;
 import de.rafael.bibliothek.database.repository.ProjectRepository;
 import de.rafael.bibliothek.database.repository.VersionRepository;
 import jakarta.validation.constraints.Pattern;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -54,22 +58,26 @@ public class ProjectController extends ApiController {
 
     private static final CacheControl CACHE = defaultCache();
 
+    private final Executor executor;
+
     @Autowired
-    public ProjectController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-         super(configuration, projects, versions, groups, builds);
+    public ProjectController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, @Qualifier(ExecutorConfiguration.QUERY_EXECUTOR) Executor executor) {
+         super(configuration, projects, versions, groups, builds, cache, responses);
+         this.executor = executor;
     }
 
     @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}")
     public ResponseEntity<?> project(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName) {
         var project = super.findProject(projectName);
-        var groups = super.findGroupsAsStream(project).map(Group::name).toList();
-        var versions = super.findVersionsAsStream(project).map(Version::name).toList();
+        // Groups and versions are independent, query them at the same time
+        var groups = CompletableFuture.supplyAsync(() -> super.findGroupNamesAsStream(project).toList(), this.executor);
+        var versions = super.findVersionNamesAsStream(project).toList();
         return ok(
                 CACHE,
                 new Response(
                     project.name(),
                     project.friendlyName(),
-                    groups,
+                    groups.join(),
                     versions
                 )
         );
@@ -23,20 +23,33 @@
  */
 package de.rafael.bibliothek.controller.v1.project;
 
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
 import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.model.VersionSummary;
 import de.rafael.bibliothek.database.repository.BuildRepository;
 import de.rafael.bibliothek.database.repository.GroupRepository;
 import de.rafael.bibliothek.database.repository.ProjectRepository;
 import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.database.repository.VersionSummaryRepository;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -50,17 +63,61 @@ public class ProjectsController extends ApiController {
 
     private static final CacheControl CACHE = defaultCache();
 
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "timestamp");
+
+    private static final String EXPAND_VERSIONS = "versions";
+    private static final String EXPAND_LATEST_BUILD = "latestBuild";
+
+    private final VersionSummaryRepository summaries;
+
     @Autowired
-    public ProjectsController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-        super(configuration, projects, versions, groups, builds);
+    public ProjectsController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, VersionSummaryRepository summaries) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.summaries = summaries;
     }
 
+    /**
+     * {@code ?expand=versions,latestBuild} embeds the versions of every project and their latest build, resolved with one
+     * {@code $in} query for the versions and one for their summaries.
+     */
     @GetMapping("/v1/projects")
-    public ResponseEntity<?> projects() {
+    public ResponseEntity<?> projects(@RequestParam(value = "expand", required = false) List<String> expand) {
         var projects = super.findProjects();
-        return ok(CACHE, new Response(projects.stream().map(Project::name).toList()));
+        if (expand == null || !(expand.contains(EXPAND_VERSIONS) || expand.contains(EXPAND_LATEST_BUILD))) {
+            return ok(CACHE, new Response(projects.stream().map(Project::name).toList()));
+        }
+
+        var versions = super.versions.findAllByProjectIn(projects.stream().map(Project::_id).toList(), OLDEST_FIRST).stream()
+                .collect(Collectors.groupingBy(Version::project));
+        var latest = expand.contains(EXPAND_LATEST_BUILD) ? this.findLatestBuilds(versions.values().stream().flatMap(List::stream).toList()) : null;
+        return ok(CACHE, new ExpandedResponse(projects.stream().map(project -> new ExpandedProject(
+                project.name(),
+                project.friendlyName(),
+                versions.getOrDefault(project._id(), List.of()).stream()
+                        .map(version -> new ExpandedVersion(version.name(), latest == null ? null : latest.get(version._id())))
+                        .toList()
+        )).toList()));
+    }
+
+    private @NotNull Map<ObjectId, Integer> findLatestBuilds(@NotNull List<Version> versions) {
+        var summaries = this.summaries.findAllById(versions.stream().map(Version::_id).toList()).stream()
+                .collect(Collectors.toMap(VersionSummary::_id, Function.identity(), (first, second) -> first, HashMap::new));
+        // Right after a deploy no summary exists yet, all missing ones are computed with one aggregation
+        var missing = versions.stream().filter(version -> !summaries.containsKey(version._id())).toList();
+        this.summaries.refreshAll(missing).forEach(summary -> summaries.put(summary._id(), summary));
+        var latest = new HashMap<ObjectId, Integer>();
+        for (Version version : versions) {
+            latest.put(version._id(), summaries.get(version._id()).latest());
+        }
+        return latest;
     }
 
     private record Response(List<String> projects) {}
 
+    private record ExpandedResponse(List<ExpandedProject> projects) {}
+
+    private record ExpandedProject(String project_id, String project_name, List<ExpandedVersion> versions) {}
+
+    private record ExpandedVersion(String version, Integer latest_build) {}
+
 }
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.controller.v1.search;
+
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.classes.ApiController;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.GroupRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.search.ChangelogIndex;
+import de.rafael.bibliothek.search.ChangelogSearch;
+import jakarta.validation.constraints.Pattern;
+import java.time.Instant;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Rafael K.
+ * @since 21:19, 19.10.26
+ */
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class SearchController extends ApiController {
+
+    private static final CacheControl CACHE = defaultCache();
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final ChangelogSearch search;
+
+    @Autowired
+    public SearchController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, ChangelogSearch search) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.search = search;
+    }
+
+    /**
+     * Searches the changes of all builds of a project by words of their summary and message or a prefix of their commit
+     * hash, every result names the earliest build that contained the commit.
+     */
+    @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/search")
+    public ResponseEntity<?> search(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @RequestParam("q") String query, @RequestParam(value = "limit", required = false) Integer limit) {
+        var project = super.findProject(projectName);
+        var size = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        var response = new Response(
+                project.name(),
+                project.friendlyName(),
+                this.search.search(project, query, size).stream().map(ResponseHit::of).toList()
+        );
+        if (!this.search.ready()) {
+            // Incomplete while the index is still being built, must not be cached for the whole generation
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(response);
+        }
+        return ok(CACHE, response);
+    }
+
+    private record Response(String project_id, String project_name, List<ResponseHit> results) {}
+
+    private record ResponseHit(String commit, String summary, float score, String version, int build, Instant timestamp, Build.Channel channel) {
+
+        private static @NotNull ResponseHit of(@NotNull ChangelogIndex.Hit hit) {
+            var build = hit.build();
+            return new ResponseHit(hit.commit(), hit.summary(), hit.score(), build.version(), build.build(), build.timestamp(), build.channel());
+        }
+
+    }
+
+}
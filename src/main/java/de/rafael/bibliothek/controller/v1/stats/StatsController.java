@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.controller.v1.stats;
+
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
+import de.rafael.bibliothek.classes.ApiController;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.DownloadStats;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.DownloadStatsRepository;
+import de.rafael.bibliothek.database.repository.GroupRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import jakarta.validation.constraints.Pattern;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Download counts are written behind, they lag up to {@code app.stats-flush-interval} behind and are therefore not part of
+ * the response cache.
+ *
+ * @author Rafael K.
+ * @since 13:05, 19.10.26
+ */
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class StatsController extends ApiController {
+
+    private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+    private static final Sort ORDER = Sort.by(Sort.Direction.ASC, "build", "download");
+
+    private final DownloadStatsRepository stats;
+
+    @Autowired
+    public StatsController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses, DownloadStatsRepository stats) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
+        this.stats = stats;
+    }
+
+    @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}/stats")
+    public ResponseEntity<?> stats(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName) {
+        var project = super.findProject(projectName);
+        var version = super.findVersion(project, versionName);
+
+        long total = 0;
+        var builds = new ArrayList<BuildStats>();
+        for (DownloadStats stats : this.stats.findAllByProjectAndVersion(project.name(), version.name(), ORDER)) {
+            if (builds.isEmpty() || builds.get(builds.size() - 1).build() != stats.build()) {
+                builds.add(new BuildStats(stats.build(), new LinkedHashMap<>()));
+            }
+            builds.get(builds.size() - 1).downloads().put(stats.download(), stats.count());
+            total += stats.count();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CACHE)
+                .body(new Response(project.name(), version.name(), total, builds));
+    }
+
+    private record Response(String project_id, String version, long downloads, List<BuildStats> builds) {}
+
+    private record BuildStats(int build, Map<String, Long> downloads) {}
+
+}
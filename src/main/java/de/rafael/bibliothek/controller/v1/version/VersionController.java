@@ -23,11 +23,13 @@
  */
 package de.rafael.bibliothek.controller.v1.version;
 
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.cache.ResponseCache;
 import de.rafael.bibliothek.classes.ApiController;
 import de.rafael.bibliothek.configuration.AppConfiguration;
-import de.rafael.bibliothek.database.model.Build;
 import de.rafael.bibliothek.database.model.Project;
 import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.projection.BuildNumber;
 import de.rafael.bibliothek.database.repository.BuildRepository;
 import de.rafael.bibliothek.database.repository.GroupRepository;
 import de.rafael.bibliothek.database.repository.ProjectRepository;
@@ -55,22 +57,22 @@ public class VersionController extends ApiController {
     private static final CacheControl CACHE = defaultCache();
 
     @Autowired
-    public VersionController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds) {
-        super(configuration, projects, versions, groups, builds);
+    public VersionController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, GroupRepository groups, BuildRepository builds, MetadataCache cache, ResponseCache responses) {
+        super(configuration, projects, versions, groups, builds, cache, responses);
     }
 
     @GetMapping("/v1/projects/{project:" + Project.PATTERN + "}/versions/{version:" + Version.PATTERN + "}")
     public ResponseEntity<?> version(@PathVariable("project") @Pattern(regexp = Project.PATTERN) String projectName, @PathVariable("version") @Pattern(regexp = Version.PATTERN) String versionName) {
         var project = super.findProject(projectName);
         var version = super.findVersion(project, versionName);
-        var builds = super.builds.findAllByProjectAndVersion(project._id(), version._id());
+        var builds = super.builds.findAllNumbersByProjectAndVersion(project._id(), version._id());
         return ok(
                 CACHE,
                 new Response(
                         project.name(),
                         project.friendlyName(),
                         version.name(),
-                        builds.stream().map(Build::number).toList()
+                        builds.stream().map(BuildNumber::number).toList()
                 )
         );
     }
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database;
+
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on the models once the application is ready. Spring's automatic index creation is off
+ * by default and would abort the start if an index can not be built, for example a unique one over existing duplicates.
+ * Here that is logged instead, the application keeps running without the index. An index that was declared unique later
+ * replaces the existing one with the same keys, MongoDB can not change that option in place. The old index is only
+ * dropped once an aggregation found no duplicates, and restored if the unique one still fails.
+ *
+ * @author Rafael K.
+ * @since 18:52, 19.10.26
+ */
+
+@Component
+public class IndexInitializer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexInitializer.class);
+
+    private final MongoTemplate template;
+
+    @Autowired
+    public IndexInitializer(MongoTemplate template) {
+        this.template = template;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        var context = this.template.getConverter().getMappingContext();
+        var resolver = IndexResolver.create(context);
+        for (MongoPersistentEntity<?> entity : context.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            var operations = this.template.indexOps(entity.getType());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getType())) {
+                try {
+                    this.ensureIndex(operations, entity.getCollection(), index);
+                } catch (DataAccessResourceFailureException exception) {
+                    LOGGER.error("Could not create indexes, the database is not reachable: {}", exception.getMessage());
+                    return;
+                } catch (DataAccessException exception) {
+                    LOGGER.error("Could not create index {} on {}: {}", index.getIndexKeys().toJson(), entity.getCollection(), exception.getMessage());
+                }
+            }
+        }
+    }
+
+    private void ensureIndex(@NotNull IndexOperations operations, @NotNull String collection, @NotNull IndexDefinition index) {
+        var replaced = nonUnique(operations, index);
+        if (replaced == null) {
+            operations.ensureIndex(index);
+            return;
+        }
+        if (this.hasDuplicates(collection, index.getIndexKeys())) {
+            LOGGER.error("Keeping index {} on {}, it can not be made unique while there are duplicate {}", replaced.getName(), collection, index.getIndexKeys().keySet());
+            return;
+        }
+        LOGGER.info("Replacing index {} with a unique one", replaced.getName());
+        operations.dropIndex(replaced.getName());
+        try {
+            operations.ensureIndex(index);
+        } catch (DataAccessException exception) {
+            // A duplicate written in between, the keys must not stay without an index
+            operations.ensureIndex(new CompoundIndexDefinition(index.getIndexKeys()).named(replaced.getName()));
+            throw exception;
+        }
+    }
+
+    /**
+     * @return the existing non-unique index with the keys of {@code index} if that one is unique
+     */
+    private static @Nullable IndexInfo nonUnique(@NotNull IndexOperations operations, @NotNull IndexDefinition index) {
+        if (!index.getIndexOptions().getBoolean("unique", false)) {
+            return null;
+        }
+        for (IndexInfo info : operations.getIndexInfo()) {
+            if (!info.isUnique() && sameKeys(info, index.getIndexKeys())) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasDuplicates(@NotNull String collection, @NotNull org.bson.Document keys) {
+        var group = new org.bson.Document();
+        keys.keySet().forEach(key -> group.append(key, "$" + key));
+        var pipeline = List.of(
+                new org.bson.Document("$group", new org.bson.Document("_id", group).append("count", new org.bson.Document("$sum", 1))),
+                new org.bson.Document("$match", new org.bson.Document("count", new org.bson.Document("$gt", 1))),
+                new org.bson.Document("$limit", 1)
+        );
+        return this.template.getCollection(collection).aggregate(pipeline).allowDiskUse(true).first() != null;
+    }
+
+    private static boolean sameKeys(@NotNull IndexInfo info, @NotNull org.bson.Document keys) {
+        var fields = info.getIndexFields();
+        if (fields.size() != keys.size()) {
+            return false;
+        }
+        var names = keys.keySet().iterator();
+        for (IndexField field : fields) {
+            if (!field.getKey().equals(names.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
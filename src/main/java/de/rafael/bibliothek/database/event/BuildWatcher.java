@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database.event;
+
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns written builds into {@link BuildPublishedEvent}s.
+ * Builds saved through this application are announced immediately, builds inserted by external tools like
+ * {@code insertBuild.js} are picked up by polling for recent object ids.
+ * Object ids are generated by the client, a build written by a tool with a lagging clock or in the same second may sort
+ * before one that was already seen. Every poll therefore reaches {@code app.watch-overlap} back before the previous poll
+ * and skips the ids it already announced, each build is announced once.
+ *
+ * @author Rafael K.
+ * @since 14:24, 18.10.26
+ */
+
+@Component
+public class BuildWatcher extends AbstractMongoEventListener<Build> {
+
+    private static final Sort ORDER = Sort.by(Sort.Direction.ASC, "_id");
+
+    private final ApplicationEventPublisher publisher;
+    private final BuildRepository builds;
+    private final long overlap;
+    // Announced ids with their timestamp in seconds, kept while they are inside the window
+    private final Map<ObjectId, Long> announced = new ConcurrentHashMap<>();
+
+    private long lastPoll = Instant.now().getEpochSecond();
+
+    @Autowired
+    public BuildWatcher(AppConfiguration configuration, ApplicationEventPublisher publisher, BuildRepository builds) {
+        this.publisher = publisher;
+        this.builds = builds;
+        this.overlap = Math.max(1, configuration.getWatchOverlap().toSeconds());
+    }
+
+    @Override
+    public void onAfterSave(@NotNull AfterSaveEvent<Build> event) {
+        this.announce(event.getSource());
+    }
+
+    @Scheduled(fixedDelayString = "${app.watch-interval:PT10S}")
+    public void poll() {
+        var now = Instant.now().getEpochSecond();
+        var since = this.lastPoll - this.overlap;
+        for (Build build : this.builds.findAllPublishedAfter(ObjectId.getSmallestWithDate(new Date(since * 1000)), ORDER)) {
+            this.announce(build);
+        }
+        this.lastPoll = now;
+        this.announced.values().removeIf(timestamp -> timestamp < since);
+    }
+
+    private void announce(@NotNull Build build) {
+        if (this.announced.putIfAbsent(build._id(), (long) build._id().getTimestamp()) == null) {
+            this.publisher.publishEvent(new BuildPublishedEvent(build));
+        }
+    }
+
+}
@@ -23,6 +23,7 @@
  */
 package de.rafael.bibliothek.database.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.Instant;
 import java.util.List;
@@ -34,14 +35,17 @@ import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 /**
+ * Builds reference their {@link Commit}s by hash, newest first. Embedded {@link Change}s are only left in builds from
+ * before, until they are moved by {@link de.rafael.bibliothek.changelog.ChangelogMigration}.
+ *
  * @author Rafael K.
  * @since 19:13, 12.06.23
  */
 
 @CompoundIndex(def = "{'project': 1, 'version': 1}")
-@CompoundIndex(def = "{'project': 1, 'version': 1, 'number': 1}")
+@CompoundIndex(def = "{'project': 1, 'version': 1, 'number': 1}", unique = true)
 @Document(collection = "builds")
-public record Build(@Id ObjectId _id, ObjectId project, ObjectId version, int number, Instant timestamp, List<Change> changes, Map<String, Download> downloads, @JsonProperty Channel channel, @JsonProperty DisplayMode displayMode) {
+public record Build(@Id ObjectId _id, ObjectId project, ObjectId version, int number, Instant timestamp, List<Change> changes, List<String> commits, Map<String, Download> downloads, @JsonProperty Channel channel, @JsonProperty DisplayMode displayMode) {
 
     public static final String PATTERN = "\\d+";
 
@@ -63,6 +67,10 @@ public record Build(@Id ObjectId _id, ObjectId project, ObjectId version, int nu
 
     }
 
+    /**
+     * @param message null when only summaries were requested
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public record Change(String commit, String summary, String message) {}
 
     public record Download(String name, String sha256) {
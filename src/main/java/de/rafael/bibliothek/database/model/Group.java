@@ -36,6 +36,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
  */
 
 @CompoundIndex(def = "{'project': 1, 'name': 1}")
+@CompoundIndex(def = "{'project': 1, 'timestamp': 1, 'name': 1}")
 @Document(collection = "groups")
 public record Group(@Id ObjectId _id, ObjectId project, String name, Instant timestamp) {
 
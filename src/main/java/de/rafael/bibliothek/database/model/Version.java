@@ -35,8 +35,9 @@ import org.springframework.data.mongodb.core.mapping.Document;
  * @since 19:13, 12.06.23
  */
 
-@CompoundIndex(def = "{'project': 1, 'group': 1}")
+@CompoundIndex(def = "{'project': 1, 'group': 1, 'timestamp': 1, 'name': 1}")
 @CompoundIndex(def = "{'project': 1, 'name': 1}")
+@CompoundIndex(def = "{'project': 1, 'timestamp': 1, 'name': 1}")
 @Document(collection = "versions")
 public record Version(@Id ObjectId _id, ObjectId project, ObjectId group, String name, Instant timestamp) {
 
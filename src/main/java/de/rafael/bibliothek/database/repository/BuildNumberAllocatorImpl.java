@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database.repository;
+
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.BuildSequence;
+import de.rafael.bibliothek.database.projection.BuildNumber;
+import java.util.Objects;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * @author Rafael K.
+ * @since 18:36, 19.10.26
+ */
+
+public class BuildNumberAllocatorImpl implements BuildNumberAllocator {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate template;
+
+    @Autowired
+    public BuildNumberAllocatorImpl(MongoTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public int next(ObjectId project, ObjectId version) {
+        var sequence = this.template.findAndModify(sequence(version), new Update().inc("number", 1), RETURN_NEW, BuildSequence.class);
+        if (sequence == null) {
+            // First number handed out for this version, continue after the builds published before the sequence existed
+            this.advance(project, version, this.latest(project, version));
+            sequence = this.template.findAndModify(sequence(version), new Update().inc("number", 1), RETURN_NEW, BuildSequence.class);
+        }
+        return Objects.requireNonNull(sequence).number();
+    }
+
+    @Override
+    public void advance(ObjectId project, ObjectId version, int number) {
+        // $max never moves the sequence backwards, concurrent calls are safe in any order
+        this.template.upsert(sequence(version), new Update().max("number", number).setOnInsert("project", project), BuildSequence.class);
+    }
+
+    private int latest(@NotNull ObjectId project, @NotNull ObjectId version) {
+        var query = Query.query(Criteria.where("project").is(project).and("version").is(version))
+                .with(Sort.by(Sort.Direction.DESC, "number"))
+                .limit(1);
+        query.fields().include("number");
+        var latest = this.template.findOne(query, BuildNumber.class, this.template.getCollectionName(Build.class));
+        return latest == null ? 0 : latest.number();
+    }
+
+    private static @NotNull Query sequence(@NotNull ObjectId version) {
+        return Query.query(Criteria.where("_id").is(version));
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database.repository;
+
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import java.util.List;
+import java.util.Optional;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * @author Rafael K.
+ * @since 15:06, 18.10.26
+ */
+
+public class BuildPathResolverImpl implements BuildPathResolver {
+
+    private final MongoTemplate template;
+
+    @Autowired
+    public BuildPathResolverImpl(MongoTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Optional<BuildPath> resolve(String project, String version, int number) {
+        var pipeline = List.of(
+                new Document("$match", new Document("name", project)),
+                new Document("$limit", 1),
+                lookup(
+                        this.template.getCollectionName(Version.class),
+                        new Document("project", "$_id"),
+                        new Document("$expr", equal("project")).append("name", version),
+                        "version"
+                ),
+                unwind("version"),
+                lookup(
+                        this.template.getCollectionName(Build.class),
+                        new Document("project", "$_id").append("version", "$version._id"),
+                        new Document("$expr", new Document("$and", List.of(equal("project"), equal("version")))).append("number", number),
+                        "build"
+                ),
+                unwind("build")
+        );
+
+        var result = this.template.getCollection(this.template.getCollectionName(Project.class)).aggregate(pipeline).first();
+        if (result == null) {
+            return Optional.empty();
+        }
+
+        var converter = this.template.getConverter();
+        var versionDocument = result.get("version", Document.class);
+        var buildDocument = result.get("build", Document.class);
+        return Optional.of(new BuildPath(
+                converter.read(Project.class, result),
+                versionDocument == null ? null : converter.read(Version.class, versionDocument),
+                buildDocument == null ? null : converter.read(Build.class, buildDocument)
+        ));
+    }
+
+    private static @NotNull Document lookup(String from, Document let, Document match, String as) {
+        return new Document("$lookup", new Document("from", from)
+                .append("let", let)
+                .append("pipeline", List.of(new Document("$match", match), new Document("$limit", 1)))
+                .append("as", as));
+    }
+
+    private static @NotNull Document unwind(String field) {
+        return new Document("$unwind", new Document("path", "$" + field).append("preserveNullAndEmptyArrays", true));
+    }
+
+    private static @NotNull Document equal(String field) {
+        return new Document("$eq", List.of("$" + field, "$$" + field));
+    }
+
+}
@@ -24,11 +24,18 @@
 package de.rafael.bibliothek.database.repository;
 
 import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.projection.BuildNumber;
+import de.rafael.bibliothek.database.projection.LatestBuilds;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -37,12 +44,38 @@ import org.springframework.stereotype.Repository;
  */
 
 @Repository
-public interface BuildRepository extends MongoRepository<Build, ObjectId>  {
+public interface BuildRepository extends MongoRepository<Build, ObjectId>, BuildPathResolver {
 
     List<Build> findAllByProjectAndVersion(final ObjectId project, final ObjectId version);
 
+    List<Build> findAllByProjectAndVersionAndNumberGreaterThan(final ObjectId project, final ObjectId version, final int number, final Pageable pageable);
+
+    Stream<Build> streamAllByProjectAndVersion(final ObjectId project, final ObjectId version, final Sort sort);
+
+    @Query(value = "{'project': ?0, 'version': ?1}", fields = "{'_id': 0, 'number': 1}", sort = "{'number': 1}")
+    List<BuildNumber> findAllNumbersByProjectAndVersion(final ObjectId project, final ObjectId version);
+
     List<Build> findAllByProjectAndVersionIn(final ObjectId project, final Collection<ObjectId> version);
 
+    List<Build> findAllByProjectAndVersionIn(final ObjectId project, final Collection<ObjectId> version, final Sort sort);
+
+    List<Build> findAllByProjectAndVersionInAndChannel(final ObjectId project, final Collection<ObjectId> version, final Build.Channel channel, final Sort sort);
+
+    @Aggregation(pipeline = {
+            "{'$match': {'project': ?0, 'version': {'$in': ?1}}}",
+            "{'$group': {'_id': '$version', 'builds': {'$topN': {'n': ?2, 'sortBy': {'number': -1}, 'output': '$$ROOT'}}}}"
+    })
+    List<LatestBuilds> findLatestByProjectAndVersionIn(final ObjectId project, final Collection<ObjectId> version, final int limit);
+
+    @Aggregation(pipeline = {
+            "{'$match': {'project': ?0, 'version': {'$in': ?1}, 'channel': ?2}}",
+            "{'$group': {'_id': '$version', 'builds': {'$topN': {'n': ?3, 'sortBy': {'number': -1}, 'output': '$$ROOT'}}}}"
+    })
+    List<LatestBuilds> findLatestByProjectAndVersionInAndChannel(final ObjectId project, final Collection<ObjectId> version, final Build.Channel channel, final int limit);
+
     Optional<Build> findByProjectAndVersionAndNumber(final ObjectId project, final ObjectId version, final int number);
 
+    @Query("{'_id': {'$gt': ?0}}")
+    List<Build> findAllPublishedAfter(final ObjectId id, final Sort sort);
+
 }
@@ -24,10 +24,12 @@
 package de.rafael.bibliothek.database.repository;
 
 import de.rafael.bibliothek.database.model.Group;
+import de.rafael.bibliothek.database.projection.TimestampedName;
 import java.util.List;
 import java.util.Optional;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -40,6 +42,9 @@ public interface GroupRepository extends MongoRepository<Group, ObjectId> {
 
     List<Group> findAllByProject(final ObjectId project);
 
+    @Query(value = "{'project': ?0}", fields = "{'_id': 0, 'name': 1, 'timestamp': 1}", sort = "{'timestamp': 1}")
+    List<TimestampedName> findAllNamesByProject(final ObjectId project);
+
     Optional<Group> findByProjectAndName(final ObjectId project, final String name);
 
 }
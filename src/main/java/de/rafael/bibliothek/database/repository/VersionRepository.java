@@ -24,10 +24,14 @@
 package de.rafael.bibliothek.database.repository;
 
 import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.projection.TimestampedName;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -40,7 +44,15 @@ public interface VersionRepository extends MongoRepository<Version, ObjectId> {
 
     List<Version> findAllByProject(final ObjectId project);
 
-    List<Version> findAllByProjectAndGroup(final ObjectId project, final ObjectId group);
+    @Query(value = "{'project': ?0}", fields = "{'_id': 0, 'name': 1, 'timestamp': 1}", sort = "{'timestamp': 1}")
+    List<TimestampedName> findAllNamesByProject(final ObjectId project);
+
+    List<Version> findAllByProjectIn(final Collection<ObjectId> projects, final Sort sort);
+
+    List<Version> findAllByProjectAndGroup(final ObjectId project, final ObjectId group, final Sort sort);
+
+    @Query(value = "{'project': ?0, 'group': ?1}", fields = "{'_id': 0, 'name': 1, 'timestamp': 1}", sort = "{'timestamp': 1, 'name': 1}")
+    List<TimestampedName> findAllNamesByProjectAndGroup(final ObjectId project, final ObjectId group);
 
     Optional<Version> findByProjectAndName(final ObjectId project, final String name);
 
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database.repository;
+
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.model.VersionSummary;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * @author Rafael K.
+ * @since 19:22, 18.10.26
+ */
+
+public class VersionSummaryUpdaterImpl implements VersionSummaryUpdater {
+
+    private final MongoTemplate template;
+
+    @Autowired
+    public VersionSummaryUpdaterImpl(MongoTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public VersionSummary refresh(ObjectId project, ObjectId version) {
+        return this.summarize(Map.of(version, project)).get(0);
+    }
+
+    @Override
+    public List<VersionSummary> refreshAll(Collection<Version> versions) {
+        if (versions.isEmpty()) {
+            return List.of();
+        }
+        var projects = new LinkedHashMap<ObjectId, ObjectId>();
+        versions.forEach(version -> projects.put(version._id(), version.project()));
+        return this.summarize(projects);
+    }
+
+    /**
+     * @param projects project of every version to summarize
+     */
+    private List<VersionSummary> summarize(Map<ObjectId, ObjectId> projects) {
+        var pipeline = List.of(
+                new Document("$match", new Document("project", new Document("$in", new HashSet<>(projects.values())))
+                        .append("version", new Document("$in", projects.keySet()))),
+                new Document("$group", new Document("_id", new Document("version", "$version").append("channel", "$channel"))
+                        .append("latest", new Document("$max", "$number"))
+                        .append("promoted", new Document("$max", new Document("$cond", Arrays.asList(
+                                new Document("$eq", List.of("$displayMode", Build.DisplayMode.PROMOTE.name())), "$number", null
+                        ))))
+                        .append("count", new Document("$sum", 1)))
+        );
+
+        var accumulators = new HashMap<ObjectId, Accumulator>();
+        for (Document group : this.template.getCollection(this.template.getCollectionName(Build.class)).aggregate(pipeline)) {
+            var key = group.get("_id", Document.class);
+            var accumulator = accumulators.computeIfAbsent(key.getObjectId("version"), version -> new Accumulator());
+            var channelLatest = group.getInteger("latest");
+            if (key.getString("channel") != null) {
+                accumulator.channels.put(key.getString("channel"), channelLatest);
+            }
+            accumulator.latest = max(accumulator.latest, channelLatest);
+            accumulator.promoted = max(accumulator.promoted, group.getInteger("promoted"));
+            accumulator.count += group.getInteger("count");
+        }
+
+        var now = Instant.now();
+        var summaries = new ArrayList<VersionSummary>(projects.size());
+        var operations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, VersionSummary.class);
+        projects.forEach((version, project) -> {
+            var accumulator = accumulators.getOrDefault(version, new Accumulator());
+            var summary = new VersionSummary(version, project, accumulator.latest, accumulator.promoted, accumulator.channels, accumulator.count, now);
+            operations.replaceOne(Query.query(Criteria.where("_id").is(version)), summary, FindAndReplaceOptions.options().upsert());
+            summaries.add(summary);
+        });
+        operations.execute();
+        return summaries;
+    }
+
+    private static Integer max(Integer first, Integer second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : Math.max(first, second);
+    }
+
+    private static final class Accumulator {
+
+        private final Map<String, Integer> channels = new HashMap<>();
+        private Integer latest;
+        private Integer promoted;
+        private int count;
+
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.storage.Artifact;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional cache keeping the contents of hot downloads in direct buffers outside the Java heap.
+ * A file is admitted after it has been requested {@code app.cache.artifacts.admission-requests} times, or right away when
+ * its build is published. Eviction is left to Caffeine's size weighted W-TinyLFU, which keeps the frequently downloaded
+ * files and lets one-off downloads pass through.
+ * Files are read on the application task executor and put into the cache once complete, the request that admits a file
+ * is still served from the store and no request waits for a load.
+ * Evicted buffers are released by the garbage collector once no response is writing from them anymore.
+ *
+ * @author Rafael K.
+ * @since 22:05, 18.10.26
+ */
+
+@Component
+public class ArtifactCache {
+
+    private final boolean enabled;
+    private final boolean warmup;
+    private final long maximumFileSize;
+    private final int admissionRequests;
+    private final Executor executor;
+    private final Cache<String, ByteBuffer> artifacts;
+    private final Cache<String, AtomicInteger> requests;
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ArtifactCache(AppConfiguration configuration, MeterRegistry registry, @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
+        var artifacts = configuration.getCache().getArtifacts();
+        this.enabled = artifacts.isEnabled();
+        this.warmup = artifacts.isWarmup();
+        this.maximumFileSize = Math.min(artifacts.getMaximumFileSize().toBytes(), Integer.MAX_VALUE);
+        this.admissionRequests = artifacts.getAdmissionRequests();
+        this.executor = executor;
+
+        Cache<String, ByteBuffer> cache = Caffeine.newBuilder()
+                .maximumWeight(artifacts.getMaximumSize().toBytes())
+                .weigher((String key, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+        this.artifacts = CaffeineCacheMetrics.monitor(registry, cache, "downloads.artifacts");
+        this.requests = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        Gauge.builder("downloads.artifacts.bytes", this.artifacts, value -> value.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * @return a read-only view of the file, or null if it is not hot (yet) and has to be read from disk
+     */
+    public @Nullable ByteBuffer find(@NotNull DownloadRoute route) {
+        if (!this.enabled || route.length() > this.maximumFileSize) {
+            return null;
+        }
+        // The strong ETag identifies the content, builds sharing a file share the entry
+        var buffer = this.artifacts.getIfPresent(route.etag());
+        if (buffer != null) {
+            return buffer.asReadOnlyBuffer();
+        }
+        var requests = this.requests.get(route.etag(), key -> new AtomicInteger()).incrementAndGet();
+        if (requests >= this.admissionRequests) {
+            this.requests.invalidate(route.etag());
+            this.load(route);
+        }
+        return null;
+    }
+
+    /**
+     * Loads a freshly published file in the background, so the first burst of downloads is already served from memory.
+     */
+    public void warmup(@NotNull DownloadRoute route) {
+        if (!this.enabled || !this.warmup || route.length() > this.maximumFileSize) {
+            return;
+        }
+        this.load(route);
+    }
+
+    /**
+     * Reads the file in the background, outside of any cache lock, at most once at a time per file.
+     */
+    private void load(@NotNull DownloadRoute route) {
+        var key = route.etag();
+        if (!this.loading.add(key)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> {
+                try {
+                    if (this.artifacts.getIfPresent(key) == null) {
+                        this.artifacts.put(key, read(route));
+                    }
+                } catch (UncheckedIOException ignored) {
+                    // Served from the store instead, admitted again after further requests
+                } finally {
+                    this.loading.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            this.loading.remove(key);
+        }
+    }
+
+    private static @NotNull ByteBuffer read(@NotNull DownloadRoute route) {
+        var length = route.length();
+        try (var channel = channel(route.artifact(), length)) {
+            var buffer = ByteBuffer.allocateDirect((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Artifact " + route.etag() + " ended after " + buffer.position() + " of " + length + " bytes");
+                }
+            }
+            return buffer.flip();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static @NotNull ReadableByteChannel channel(@NotNull Artifact artifact, long length) throws IOException {
+        var path = artifact.path();
+        return path != null ? FileChannel.open(path, StandardOpenOption.READ) : Channels.newChannel(artifact.open(0, length));
+    }
+
+}
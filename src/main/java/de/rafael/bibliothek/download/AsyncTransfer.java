@@ -0,0 +1,323 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import de.rafael.bibliothek.ratelimit.Throttle;
+import de.rafael.bibliothek.storage.Artifact;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes a response body with non-blocking servlet I/O, so a slow client does not hold a request thread.
+ * The request thread only starts the transfer, afterwards the container calls {@link #onWritePossible()} whenever the
+ * socket can take more data, and nothing runs while the client is not reading.
+ * Parts are closed however the transfer ends, completed, timed out or failed, files are only opened once they are read.
+ *
+ * @author Rafael K.
+ * @since 14:02, 19.10.26
+ */
+
+final class AsyncTransfer implements WriteListener, AsyncListener {
+
+    static final int CHUNK = 64 * 1024;
+
+    private final AsyncContext context;
+    private final ServletOutputStream output;
+    private final Iterator<Part> parts;
+    private final @Nullable Throttle throttle;
+    private final byte[] buffer = new byte[CHUNK];
+    private @Nullable Part current;
+    private volatile boolean completed;
+
+    private AsyncTransfer(AsyncContext context, ServletOutputStream output, Iterator<Part> parts, @Nullable Throttle throttle) {
+        this.context = context;
+        this.output = output;
+        this.parts = parts;
+        this.throttle = throttle;
+    }
+
+    /**
+     * @param throttle limits the bandwidth, chunks are delayed instead of blocking a thread
+     */
+    static void start(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull List<Part> parts, @Nullable Throttle throttle, @NotNull Duration timeout) throws IOException {
+        var context = request.startAsync(request, response);
+        context.setTimeout(timeout.toMillis());
+        var output = response.getOutputStream();
+        var transfer = new AsyncTransfer(context, output, parts.iterator(), throttle);
+        context.addListener(transfer);
+        output.setWriteListener(transfer);
+    }
+
+    @Override
+    public synchronized void onWritePossible() throws IOException {
+        while (!this.completed && this.output.isReady()) {
+            if (this.current == null) {
+                if (!this.parts.hasNext()) {
+                    this.release();
+                    this.context.complete();
+                    return;
+                }
+                this.current = this.parts.next();
+            }
+            var remaining = this.current.remaining();
+            if (remaining <= 0) {
+                this.current.close();
+                this.current = null;
+                continue;
+            }
+            var length = (int) Math.min(CHUNK, remaining);
+            if (this.throttle != null) {
+                // Only pay for bytes that are actually left
+                length = (int) Math.min(this.throttle.chunk(), remaining);
+                var wait = this.throttle.acquire(length);
+                if (wait > 0) {
+                    // Nothing was written, so the container will not call back on its own
+                    this.throttle.schedule(this::resume, wait);
+                    return;
+                }
+            }
+            var read = this.current.read(this.buffer, length);
+            if (read < 0) {
+                this.current.close();
+                this.current = null;
+                continue;
+            }
+            this.output.write(this.buffer, 0, read);
+        }
+    }
+
+    /**
+     * Runs on the throttle's scheduler, the transfer may have ended while it was waiting.
+     */
+    private void resume() {
+        if (this.completed) {
+            return;
+        }
+        try {
+            this.context.start(() -> {
+                try {
+                    this.onWritePossible();
+                } catch (Throwable throwable) {
+                    this.onError(throwable);
+                }
+            });
+        } catch (IllegalStateException exception) {
+            // Completed or timed out in the meantime
+            this.release();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // Usually the client went away, the response is committed so there is nothing left to report
+        this.release();
+        this.context.complete();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        this.release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        this.release();
+        event.getAsyncContext().complete();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        this.release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+
+    /**
+     * Closes the current and all remaining parts, once.
+     */
+    private synchronized void release() {
+        if (this.completed) {
+            return;
+        }
+        this.completed = true;
+        close(this.current);
+        this.current = null;
+        this.parts.forEachRemaining(AsyncTransfer::close);
+    }
+
+    private static void close(@Nullable Part part) {
+        try {
+            if (part != null) {
+                part.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * A section of the body, read in chunks of at most the size of the given buffer.
+     */
+    interface Part extends Closeable {
+
+        /**
+         * @return bytes read into the start of {@code target}, at most {@code length}, or -1 once the part is complete
+         */
+        int read(byte[] target, int length) throws IOException;
+
+        /**
+         * @return bytes left in this part
+         */
+        long remaining();
+
+        @Override
+        default void close() throws IOException {}
+
+        static @NotNull Part of(byte[] bytes) {
+            return of(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+
+        static @NotNull Part of(@NotNull ByteBuffer buffer, long position, long length) {
+            var region = buffer.duplicate().limit((int) (position + length)).position((int) position);
+            return new Part() {
+
+                @Override
+                public int read(byte[] target, int limit) {
+                    if (!region.hasRemaining()) {
+                        return -1;
+                    }
+                    var read = Math.min(limit, region.remaining());
+                    region.get(target, 0, read);
+                    return read;
+                }
+
+                @Override
+                public long remaining() {
+                    return region.remaining();
+                }
+
+            };
+        }
+
+        /**
+         * Opens the file on the first read, a multipart response does not hold a descriptor per range while it waits.
+         */
+        static @NotNull Part of(@NotNull Path path, long position, long length) {
+            return new Part() {
+
+                private @Nullable FileChannel channel;
+                private long offset = position;
+
+                @Override
+                public int read(byte[] target, int limit) throws IOException {
+                    var remaining = this.remaining();
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    if (this.channel == null) {
+                        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+                    }
+                    var read = this.channel.read(ByteBuffer.wrap(target, 0, (int) Math.min(limit, remaining)), this.offset);
+                    if (read < 0) {
+                        throw new IOException("File " + path + " ended " + remaining + " bytes early");
+                    }
+                    this.offset += read;
+                    return read;
+                }
+
+                @Override
+                public long remaining() {
+                    return position + length - this.offset;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (this.channel != null) {
+                        this.channel.close();
+                    }
+                }
+
+            };
+        }
+
+        /**
+         * Remote artifacts, each read may wait for the store.
+         */
+        static @NotNull Part of(@NotNull Artifact artifact, long position, long length) {
+            return new Part() {
+
+                private @Nullable InputStream input;
+                private long remaining = length;
+
+                @Override
+                public int read(byte[] target, int limit) throws IOException {
+                    if (this.remaining <= 0) {
+                        return -1;
+                    }
+                    if (this.input == null) {
+                        this.input = artifact.open(position, length);
+                    }
+                    var read = this.input.read(target, 0, (int) Math.min(limit, this.remaining));
+                    if (read < 0) {
+                        throw new IOException("Artifact ended " + this.remaining + " bytes early");
+                    }
+                    this.remaining -= read;
+                    return read;
+                }
+
+                @Override
+                public long remaining() {
+                    return this.remaining;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (this.input != null) {
+                        this.input.close();
+                    }
+                }
+
+            };
+        }
+
+    }
+
+}
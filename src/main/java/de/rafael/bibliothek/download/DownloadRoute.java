@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.repository.BuildPath;
+import de.rafael.bibliothek.storage.Artifact;
+import de.rafael.bibliothek.storage.ArtifactStore;
+import de.rafael.bibliothek.storage.LocalArtifact;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.ContentDisposition;
+
+/**
+ * Everything needed to serve a download without touching the database or resolving paths again.
+ *
+ * @param artifact           stored file
+ * @param length             file size in bytes
+ * @param etag               strong entity tag derived from the stored sha256, including quotes
+ * @param lastModified       build timestamp in epoch milliseconds
+ * @param contentDisposition value of the {@code Content-Disposition} header
+ * @author Rafael K.
+ * @since 21:27, 18.10.26
+ */
+
+public record DownloadRoute(Artifact artifact, long length, String etag, long lastModified, String contentDisposition) {
+
+    /**
+     * Serves the blob of the download, builds that have not been migrated yet are served from their own directory.
+     *
+     * @param storagePath root of the old layout, null if there is none
+     */
+    public static @NotNull DownloadRoute of(@NotNull ArtifactStore store, @Nullable Path storagePath, @NotNull BuildPath path, Build.@NotNull Download download) throws IOException {
+        var build = Objects.requireNonNull(path.build());
+        var artifact = store.find(download.sha256());
+        if (artifact == null) {
+            if (storagePath == null) {
+                throw new NoSuchFileException(download.sha256());
+            }
+            artifact = LocalArtifact.of(storagePath
+                    .resolve(path.project().name())
+                    .resolve(Objects.requireNonNull(path.version()).name())
+                    .resolve(String.valueOf(build.number()))
+                    .resolve(download.name()));
+        }
+        return new DownloadRoute(artifact, artifact.length(), etag(download.sha256()), build.timestamp().toEpochMilli(), attachment(download.name()));
+    }
+
+    public static @NotNull DownloadRoute ofBlob(@NotNull ArtifactStore store, @NotNull String sha256) throws IOException {
+        var artifact = store.find(sha256);
+        if (artifact == null) {
+            throw new NoSuchFileException(sha256);
+        }
+        return new DownloadRoute(artifact, artifact.length(), etag(sha256), artifact.lastModified(), attachment(sha256));
+    }
+
+    private static @NotNull String etag(@NotNull String sha256) {
+        return "\"" + sha256 + "\"";
+    }
+
+    private static @NotNull String attachment(@NotNull String name) {
+        return ContentDisposition.attachment().filename(name, StandardCharsets.UTF_8).build().toString();
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.event.BuildPublishedEvent;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.repository.BuildPath;
+import de.rafael.bibliothek.storage.ArtifactStore;
+import de.rafael.bibliothek.throwables.DownloadFailed;
+import de.rafael.bibliothek.throwables.DownloadNotFound;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Route table from {@code (project, version, build, download)} to a precomputed {@link DownloadRoute}.
+ * Routes are created on first request and for every published build, after that a download is a single hash lookup.
+ * Artifacts are immutable once published, so routes only leave the table through eviction or when their file disappears.
+ *
+ * @author Rafael K.
+ * @since 21:34, 18.10.26
+ */
+
+@Component
+public class DownloadRoutes {
+
+    private final Path storagePath;
+    private final ArtifactStore store;
+    private final MetadataCache metadata;
+    private final ArtifactCache artifacts;
+    private final Cache<Key, DownloadRoute> routes;
+    private final Cache<String, DownloadRoute> blobs;
+
+    @Autowired
+    public DownloadRoutes(AppConfiguration configuration, MeterRegistry registry, ArtifactStore store, MetadataCache metadata, ArtifactCache artifacts) {
+        this.storagePath = configuration.getStoragePath();
+        this.store = store;
+        this.metadata = metadata;
+        this.artifacts = artifacts;
+
+        var entry = configuration.getCache().getDownloads();
+        Cache<Key, DownloadRoute> routes = Caffeine.newBuilder()
+                .maximumSize(entry.getMaximumSize())
+                .expireAfterAccess(entry.getTtl())
+                .recordStats()
+                .build();
+        this.routes = CaffeineCacheMetrics.monitor(registry, routes, "downloads.routes");
+        Cache<String, DownloadRoute> blobs = Caffeine.newBuilder()
+                .maximumSize(entry.getMaximumSize())
+                .expireAfterAccess(entry.getTtl())
+                .recordStats()
+                .build();
+        this.blobs = CaffeineCacheMetrics.monitor(registry, blobs, "downloads.blobs");
+    }
+
+    /**
+     * @param resolver resolves the build on a miss, expected to throw the matching not found exception
+     */
+    public @NotNull DownloadRoute find(@NotNull String project, @NotNull String version, int build, @NotNull String name, @NotNull Supplier<BuildPath> resolver) {
+        return this.routes.get(new Key(project, version, build, name), key -> {
+            var path = resolver.get();
+            var download = path.build().downloads().values().stream()
+                    .filter(value -> value.name().equals(key.name()))
+                    .findFirst()
+                    .orElseThrow(DownloadNotFound::new);
+            try {
+                return DownloadRoute.of(this.store, this.storagePath, path, download);
+            } catch (NoSuchFileException exception) {
+                throw new DownloadNotFound();
+            } catch (IOException exception) {
+                throw new DownloadFailed(exception);
+            }
+        });
+    }
+
+    public @NotNull DownloadRoute findBlob(@NotNull String sha256) {
+        return this.blobs.get(sha256, key -> {
+            try {
+                return DownloadRoute.ofBlob(this.store, key);
+            } catch (NoSuchFileException exception) {
+                throw new DownloadNotFound();
+            } catch (IOException exception) {
+                throw new DownloadFailed(exception);
+            }
+        });
+    }
+
+    public void invalidateBlob(@NotNull String sha256) {
+        this.blobs.invalidate(sha256);
+    }
+
+    public void invalidate(@NotNull String project, @NotNull String version, int build, @NotNull String name) {
+        this.routes.invalidate(new Key(project, version, build, name));
+    }
+
+    @EventListener
+    public void onBuildPublished(@NotNull BuildPublishedEvent event) {
+        var build = event.build();
+        var project = this.metadata.findProject(build.project());
+        var version = this.metadata.findVersion(build.version());
+        if (project.isEmpty() || version.isEmpty() || build.downloads() == null) {
+            return;
+        }
+
+        var path = new BuildPath(project.get(), version.get(), build);
+        for (Build.Download download : build.downloads().values()) {
+            var key = new Key(project.get().name(), version.get().name(), build.number(), download.name());
+            try {
+                var route = DownloadRoute.of(this.store, this.storagePath, path, download);
+                this.routes.put(key, route);
+                this.artifacts.warmup(route);
+            } catch (IOException exception) {
+                // The file may not be copied yet, the route is created on the first request instead
+                this.routes.invalidate(key);
+            }
+        }
+    }
+
+    private record Key(String project, String version, int build, String name) {}
+
+}
@@ -0,0 +1,370 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.ratelimit.RateLimiter;
+import de.rafael.bibliothek.ratelimit.Throttle;
+import de.rafael.bibliothek.storage.Artifact;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Writes files to the client.
+ * If the connector supports it, the transfer is handed to Tomcat, which uses {@code sendfile} after the request thread has
+ * returned. That is the only zero-copy path. Everything else, files held by the {@link ArtifactCache}, remote artifacts
+ * and multipart ranges, is written with non-blocking I/O by {@link AsyncTransfer} through a reusable chunk buffer, so slow
+ * clients never pin request threads. With async writes disabled, files are pushed from the request thread with
+ * {@link FileChannel#transferTo}, which copies through a heap buffer because the target is the servlet output stream.
+ * Downloads shaped by the {@link RateLimiter} skip {@code sendfile}, their chunks are delayed by {@link AsyncTransfer}
+ * or, when written synchronously, by blocking the request thread before every chunk.
+ * Conditional and range requests are answered here as well, 304 is decided before the file is touched.
+ *
+ * @author Rafael K.
+ * @since 20:41, 18.10.26
+ */
+
+@Component
+public class DownloadWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES = "bytes";
+
+    private final ArtifactCache artifacts;
+    private final RateLimiter limiter;
+    private final boolean sendfile;
+    private final boolean async;
+    private final Duration asyncTimeout;
+
+    @Autowired
+    public DownloadWriter(AppConfiguration configuration, ArtifactCache artifacts, RateLimiter limiter) {
+        this.artifacts = artifacts;
+        this.limiter = limiter;
+        var downloads = configuration.getDownloads();
+        this.sendfile = downloads.isSendfile();
+        this.async = downloads.isAsync();
+        this.asyncTimeout = downloads.getAsyncTimeout();
+    }
+
+    /**
+     * Serves the route, headers other than the ones derived from the route and the content related ones have to be set before.
+     */
+    public void serve(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull DownloadRoute route, @NotNull MediaType contentType) throws IOException {
+        var artifact = route.artifact();
+        var etag = route.etag();
+        var lastModified = route.lastModified();
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, route.contentDisposition());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        var length = route.length();
+        var buffer = this.artifacts.find(route);
+        var throttle = this.limiter.throttle(request, AsyncTransfer.CHUNK);
+        var ranges = ranges(request.getHeader(HttpHeaders.RANGE));
+        if (ranges == null || !ifRangeMatches(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            this.write(request, response, artifact, buffer, throttle, 0, length);
+            return;
+        }
+
+        List<Region> regions;
+        try {
+            regions = regions(ranges, length);
+        } catch (IllegalArgumentException exception) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " */" + length);
+            response.setContentLength(0);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (regions.size() == 1) {
+            var region = regions.get(0);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(length));
+            this.write(request, response, artifact, buffer, throttle, region.start(), region.length());
+            return;
+        }
+        this.writeMultipart(request, response, artifact, buffer, throttle, contentType, regions, length);
+    }
+
+    /**
+     * Writes {@code length} bytes of the artifact starting at {@code position}.
+     *
+     * @param buffer   contents of the file if it is held by the {@link ArtifactCache}
+     * @param throttle bandwidth limit, sendfile can not be shaped so it is only used without one
+     */
+    private void write(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull Artifact artifact, @Nullable ByteBuffer buffer, @Nullable Throttle throttle, long position, long length) throws IOException {
+        response.setContentLengthLong(length);
+        var path = artifact.path();
+        if (buffer == null && path != null && throttle == null && this.sendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + length);
+            return;
+        }
+        if (this.isAsync(request)) {
+            AsyncTransfer.start(request, response, List.of(part(artifact, buffer, position, length)), throttle, this.asyncTimeout);
+            return;
+        }
+        if (buffer != null) {
+            write(response, buffer, throttle, position, length);
+            return;
+        }
+        if (path == null) {
+            stream(response, artifact, throttle, position, length);
+            return;
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(response, channel, throttle, position, length);
+        }
+    }
+
+    /**
+     * Writes a {@code multipart/byteranges} body, sendfile only supports a single region so local files always use
+     * {@link FileChannel#transferTo}.
+     */
+    private void writeMultipart(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull Artifact artifact, @Nullable ByteBuffer buffer, @Nullable Throttle throttle, @NotNull MediaType contentType, @NotNull List<Region> regions, long length) throws IOException {
+        var boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        var headers = new ArrayList<byte[]>(regions.size());
+        var end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        long contentLength = end.length;
+        for (Region region : regions) {
+            var header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(length) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            headers.add(header);
+            contentLength += header.length + region.length();
+        }
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (this.isAsync(request)) {
+            var parts = new ArrayList<AsyncTransfer.Part>(regions.size() * 2 + 1);
+            for (int i = 0; i < regions.size(); i++) {
+                parts.add(AsyncTransfer.Part.of(headers.get(i)));
+                parts.add(part(artifact, buffer, regions.get(i).start(), regions.get(i).length()));
+            }
+            parts.add(AsyncTransfer.Part.of(end));
+            AsyncTransfer.start(request, response, parts, throttle, this.asyncTimeout);
+            return;
+        }
+        var output = response.getOutputStream();
+        var path = artifact.path();
+        if (buffer != null || path == null) {
+            for (int i = 0; i < regions.size(); i++) {
+                output.write(headers.get(i));
+                if (buffer != null) {
+                    write(response, buffer, throttle, regions.get(i).start(), regions.get(i).length());
+                } else {
+                    stream(response, artifact, throttle, regions.get(i).start(), regions.get(i).length());
+                }
+            }
+            output.write(end);
+            return;
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                output.write(headers.get(i));
+                transfer(response, channel, throttle, regions.get(i).start(), regions.get(i).length());
+            }
+        }
+        output.write(end);
+    }
+
+    private static void write(@NotNull HttpServletResponse response, @NotNull ByteBuffer buffer, @Nullable Throttle throttle, long position, long length) throws IOException {
+        var output = response.getOutputStream();
+        var target = output instanceof CoyoteOutputStream ? null : Channels.newChannel(output);
+        var end = position + length;
+        while (position < end) {
+            var size = slice(throttle, end - position);
+            var region = buffer.duplicate().limit((int) (position + size)).position((int) position);
+            if (target == null) {
+                // Tomcat copies straight from the direct buffer into its socket buffer
+                ((CoyoteOutputStream) output).write(region);
+            } else {
+                while (region.hasRemaining()) {
+                    target.write(region);
+                }
+            }
+            position += size;
+        }
+    }
+
+    /**
+     * Blocks until the throttle allows the next chunk, for writes on the request thread.
+     *
+     * @return the number of bytes to write now
+     */
+    private static long slice(@Nullable Throttle throttle, long remaining) throws IOException {
+        if (throttle == null) {
+            return remaining;
+        }
+        var size = (int) Math.min(throttle.chunk(), remaining);
+        throttle.await(size);
+        return size;
+    }
+
+    private boolean isAsync(@NotNull HttpServletRequest request) {
+        return this.async && request.isAsyncSupported();
+    }
+
+    private static @NotNull AsyncTransfer.Part part(@NotNull Artifact artifact, @Nullable ByteBuffer buffer, long position, long length) {
+        if (buffer != null) {
+            return AsyncTransfer.Part.of(buffer, position, length);
+        }
+        var path = artifact.path();
+        return path != null ? AsyncTransfer.Part.of(path, position, length) : AsyncTransfer.Part.of(artifact, position, length);
+    }
+
+    /**
+     * Copies from stores without a local file, e.g. ranged requests to S3.
+     */
+    private static void stream(@NotNull HttpServletResponse response, @NotNull Artifact artifact, @Nullable Throttle throttle, long position, long length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        var output = response.getOutputStream();
+        try (var input = artifact.open(position, length)) {
+            var buffer = new byte[64 * 1024];
+            var remaining = length;
+            while (remaining > 0) {
+                var size = (int) Math.min(buffer.length, slice(throttle, remaining));
+                var read = input.readNBytes(buffer, 0, size);
+                if (read < size) {
+                    throw new IOException("Artifact ended " + (remaining - read) + " bytes early");
+                }
+                output.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private static void transfer(@NotNull HttpServletResponse response, @NotNull FileChannel channel, @Nullable Throttle throttle, long position, long length) throws IOException {
+        var target = Channels.newChannel(response.getOutputStream());
+        var end = position + length;
+        while (position < end) {
+            var sliceEnd = position + slice(throttle, end - position);
+            while (position < sliceEnd) {
+                var transferred = channel.transferTo(position, sliceEnd - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("File ended before " + end + " bytes were written");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private static boolean ifRangeMatches(@NotNull HttpServletRequest request, @NotNull String etag, long lastModified) {
+        var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires the strong comparison, weak tags never match
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * A Range header that can not be parsed is ignored and the whole file sent, only parsed ranges that can not be
+     * satisfied are answered with 416 (RFC 9110, section 14.2).
+     *
+     * @return null without a usable Range header
+     */
+    private static @Nullable List<HttpRange> ranges(@Nullable String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            var ranges = HttpRange.parseRanges(header);
+            return ranges.isEmpty() ? null : ranges;
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a range can not be satisfied or the ranges add up to more than the file
+     */
+    private static @NotNull List<Region> regions(@NotNull List<HttpRange> ranges, long length) {
+        if (ranges.isEmpty()) {
+            throw new IllegalArgumentException("No ranges");
+        }
+        var regions = new ArrayList<Region>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            var start = range.getRangeStart(length);
+            var region = new Region(start, range.getRangeEnd(length) - start + 1);
+            total += region.length();
+            regions.add(region);
+        }
+        if (ranges.size() > 1 && total > length) {
+            throw new IllegalArgumentException("Ranges exceed the file length");
+        }
+        return regions;
+    }
+
+    private record Region(long start, long length) {
+
+        private @NotNull String contentRange(long total) {
+            return BYTES + " " + this.start + "-" + (this.start + this.length - 1) + "/" + total;
+        }
+
+    }
+
+}
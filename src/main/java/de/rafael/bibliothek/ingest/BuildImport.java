@@ -0,0 +1,322 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.ingest;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.event.BuildPublishedEvent;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Group;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.projection.BuildNumber;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.BuildSequenceRepository;
+import de.rafael.bibliothek.storage.ArtifactStore;
+import de.rafael.bibliothek.storage.Blobs;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports an archive laid out as {@code <project>/<version>/<build>/*.jar} from {@code app.importer.source}, enabled
+ * with {@code app.migration.import=true}. Versions are grouped by everything before their last dot, like
+ * {@code handleBuild.sh} does, and the only or alphabetically first jar of a build becomes its {@code application}
+ * download. Timestamps are taken from the files, so the archive keeps its history.
+ * Files are hashed on a fork-join pool and handed to the {@link ArtifactStore}, which may hard link them, the archive must
+ * not be modified afterwards. Builds are written with unordered bulk writes once their files are stored. Builds that
+ * already exist are skipped, an interrupted import continues where it stopped when it is run again.
+ *
+ * @author Rafael K.
+ * @since 17:12, 19.10.26
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "app.migration", name = "import", havingValue = "true")
+public class BuildImport implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildImport.class);
+    private static final String PRIMARY = "application";
+    private static final String EXTENSION = ".jar";
+
+    private final AppConfiguration.Importer configuration;
+    private final ArtifactStore store;
+    private final MongoTemplate template;
+    private final BuildRepository builds;
+    private final BuildSequenceRepository sequences;
+    private final ApplicationEventPublisher publisher;
+
+    @Autowired
+    public BuildImport(AppConfiguration configuration, ArtifactStore store, MongoTemplate template, BuildRepository builds, BuildSequenceRepository sequences, ApplicationEventPublisher publisher) {
+        this.configuration = configuration.getImporter();
+        this.store = store;
+        this.template = template;
+        this.builds = builds;
+        this.sequences = sequences;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void run(ApplicationArguments arguments) throws IOException, InterruptedException, ExecutionException {
+        var source = Objects.requireNonNull(this.configuration.getSource(), "app.importer.source is not set");
+        var candidates = scan(source);
+        var projects = this.projects(candidates);
+        var versions = this.versions(candidates, projects);
+
+        var existing = new HashSet<BuildKey>();
+        for (VersionKey key : candidates.stream().map(Candidate::version).collect(Collectors.toSet())) {
+            var version = versions.get(key);
+            for (BuildNumber number : this.builds.findAllNumbersByProjectAndVersion(version.project(), version._id())) {
+                existing.add(new BuildKey(version._id(), number.number()));
+            }
+        }
+        var pending = candidates.stream()
+                .filter(candidate -> !existing.contains(new BuildKey(versions.get(candidate.version())._id(), candidate.number())))
+                .toList();
+        LOGGER.info("Found {} builds in {}, {} already imported", candidates.size(), source, candidates.size() - pending.size());
+
+        var started = System.nanoTime();
+        var progress = new Progress();
+        var latest = new HashMap<ObjectId, Build>();
+        var pool = new ForkJoinPool(this.configuration.getThreads());
+        try {
+            for (int from = 0; from < pending.size(); from += this.configuration.getBatchSize()) {
+                var batch = pending.subList(from, Math.min(pending.size(), from + this.configuration.getBatchSize()));
+                // Parallel streams run on the pool that submitted them
+                var imported = pool.submit(() -> batch.parallelStream()
+                        .map(candidate -> this.prepare(candidate, projects.get(candidate.version().project()), versions.get(candidate.version())._id(), progress))
+                        .filter(Objects::nonNull)
+                        .toList()).get();
+                this.insert(imported, progress);
+                var highest = new HashMap<ObjectId, Build>();
+                imported.forEach(build -> highest.merge(build.version(), build, (first, second) -> first.number() >= second.number() ? first : second));
+                // Keep the sequences ahead of the import, publishers may run in the meantime
+                highest.values().forEach(build -> this.sequences.advance(build.project(), build.version(), build.number()));
+                highest.values().forEach(build -> latest.merge(build.version(), build, (first, second) -> first.number() >= second.number() ? first : second));
+
+                var seconds = Math.max(1, System.nanoTime() - started) / 1e9;
+                LOGGER.info("Imported {}/{} builds, {} builds/s, {} MiB/s",
+                        from + batch.size(), pending.size(), Math.round(progress.builds.get() / seconds), Math.round(progress.bytes.get() / seconds / (1024 * 1024)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Bulk writes bypass BuildWatcher, one event per version refreshes its summary and the caches
+        latest.values().forEach(build -> this.publisher.publishEvent(new BuildPublishedEvent(build)));
+        LOGGER.info("Import finished in {}s: {} builds, {} MiB, {} failed",
+                Math.round((System.nanoTime() - started) / 1e9), progress.builds.get(), progress.bytes.get() / (1024 * 1024), progress.failed.get());
+    }
+
+    private @Nullable Build prepare(@NotNull Candidate candidate, @NotNull Project project, @NotNull ObjectId version, @NotNull Progress progress) {
+        try {
+            var downloads = new LinkedHashMap<String, Build.Download>();
+            for (Path file : candidate.files()) {
+                var sha256 = Blobs.sha256(file);
+                this.store.store(sha256, file);
+                var name = file.getFileName().toString();
+                var type = downloads.isEmpty() ? PRIMARY : type(name);
+                downloads.put(downloads.containsKey(type) ? type + "-" + downloads.size() : type, new Build.Download(name, sha256));
+            }
+            progress.bytes.addAndGet(candidate.bytes());
+            // Ids from the file time keep the archive in order and out of BuildWatcher's view
+            return new Build(new ObjectId(Date.from(candidate.timestamp())), project._id(), version, candidate.number(), candidate.timestamp(), null, List.of(), downloads, Build.Channel.DEFAULT, Build.DisplayMode.HIDE);
+        } catch (IOException exception) {
+            LOGGER.warn("Skipping {}: {}", candidate.files(), exception.toString());
+            progress.failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Written to the collection directly, Spring's bulk operations would publish every build through BuildWatcher.
+     */
+    private void insert(@NotNull List<Build> imported, @NotNull Progress progress) {
+        if (imported.isEmpty()) {
+            return;
+        }
+        var converter = this.template.getConverter();
+        var models = imported.stream().map(build -> {
+            var document = new Document();
+            converter.write(build, document);
+            return new InsertOneModel<>(document);
+        }).toList();
+        try {
+            this.template.getCollection(this.template.getCollectionName(Build.class)).bulkWrite(models, new BulkWriteOptions().ordered(false));
+            progress.builds.addAndGet(models.size());
+        } catch (MongoBulkWriteException exception) {
+            LOGGER.warn("{} of {} builds could not be written, the first error: {}", exception.getWriteErrors().size(), models.size(), exception.getWriteErrors().get(0).getMessage());
+            progress.builds.addAndGet(models.size() - exception.getWriteErrors().size());
+            progress.failed.addAndGet(exception.getWriteErrors().size());
+        }
+    }
+
+    private @NotNull Map<String, Project> projects(@NotNull List<Candidate> candidates) {
+        var projects = this.template.findAll(Project.class).stream().collect(Collectors.toMap(Project::name, Function.identity(), (first, second) -> first, HashMap::new));
+        var missing = candidates.stream()
+                .map(candidate -> candidate.version().project())
+                .distinct()
+                .filter(name -> !projects.containsKey(name))
+                .map(name -> new Project(new ObjectId(), name, name.substring(0, 1).toUpperCase(Locale.ROOT) + name.substring(1)))
+                .toList();
+        this.insertAll(missing, Project.class);
+        missing.forEach(project -> projects.put(project.name(), project));
+        return projects;
+    }
+
+    private @NotNull Map<VersionKey, Version> versions(@NotNull List<Candidate> candidates, @NotNull Map<String, Project> projects) {
+        var names = projects.values().stream().collect(Collectors.toMap(Project::_id, Project::name));
+        var groups = new HashMap<VersionKey, Group>();
+        var versions = new HashMap<VersionKey, Version>();
+        for (Group group : this.template.findAll(Group.class)) {
+            groups.putIfAbsent(new VersionKey(names.get(group.project()), group.name()), group);
+        }
+        for (Version version : this.template.findAll(Version.class)) {
+            versions.putIfAbsent(new VersionKey(names.get(version.project()), version.name()), version);
+        }
+
+        // The oldest build dates its version and group, listings are ordered by these timestamps
+        var oldest = candidates.stream().collect(Collectors.toMap(Candidate::version, Candidate::timestamp, (first, second) -> first.isBefore(second) ? first : second));
+        var missingGroups = new ArrayList<Group>();
+        var missingVersions = new ArrayList<Version>();
+        oldest.entrySet().stream().sorted(Map.Entry.comparingByValue()).forEach(entry -> {
+            var key = entry.getKey();
+            if (versions.containsKey(key)) {
+                return;
+            }
+            var project = projects.get(key.project())._id();
+            var group = groups.computeIfAbsent(new VersionKey(key.project(), group(key.name())), groupKey -> {
+                var created = new Group(new ObjectId(), project, groupKey.name(), entry.getValue());
+                missingGroups.add(created);
+                return created;
+            });
+            var version = new Version(new ObjectId(), project, group._id(), key.name(), entry.getValue());
+            missingVersions.add(version);
+            versions.put(key, version);
+        });
+        this.insertAll(missingGroups, Group.class);
+        this.insertAll(missingVersions, Version.class);
+        return versions;
+    }
+
+    private <T> void insertAll(@NotNull List<T> documents, @NotNull Class<T> type) {
+        if (!documents.isEmpty()) {
+            this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(documents).execute();
+            LOGGER.info("Created {} {}", documents.size(), this.template.getCollectionName(type));
+        }
+    }
+
+    private static @NotNull List<Candidate> scan(@NotNull Path source) throws IOException {
+        var candidates = new ArrayList<Candidate>();
+        for (Path project : directories(source, Project.PATTERN)) {
+            for (Path version : directories(project, Version.PATTERN)) {
+                var key = new VersionKey(project.getFileName().toString(), version.getFileName().toString());
+                for (Path build : directories(version, Build.PATTERN)) {
+                    List<Path> files;
+                    try (var stream = Files.list(build)) {
+                        files = stream.filter(file -> file.getFileName().toString().endsWith(EXTENSION) && Files.isRegularFile(file)).sorted().toList();
+                    }
+                    if (files.isEmpty()) {
+                        continue;
+                    }
+                    var timestamp = Instant.EPOCH;
+                    var bytes = 0L;
+                    for (Path file : files) {
+                        var modified = Files.getLastModifiedTime(file).toInstant();
+                        timestamp = modified.isAfter(timestamp) ? modified : timestamp;
+                        bytes += Files.size(file);
+                    }
+                    candidates.add(new Candidate(key, Integer.parseInt(build.getFileName().toString()), files, timestamp, bytes));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparing(Candidate::timestamp));
+        return candidates;
+    }
+
+    private static @NotNull List<Path> directories(@NotNull Path parent, @NotNull String pattern) throws IOException {
+        try (var stream = Files.list(parent)) {
+            return stream.filter(Files::isDirectory).filter(path -> path.getFileName().toString().matches(pattern)).sorted().toList();
+        }
+    }
+
+    private static @NotNull String group(@NotNull String version) {
+        var dot = version.lastIndexOf('.');
+        return dot <= 0 ? version : version.substring(0, dot);
+    }
+
+    private static @NotNull String type(@NotNull String name) {
+        return name.substring(0, name.length() - EXTENSION.length()).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "-");
+    }
+
+    private record VersionKey(String project, String name) {}
+
+    private record BuildKey(ObjectId version, int number) {}
+
+    /**
+     * @param timestamp newest file of the build
+     */
+    private record Candidate(VersionKey version, int number, List<Path> files, Instant timestamp, long bytes) {}
+
+    private static final class Progress {
+
+        private final AtomicLong builds = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+    }
+
+}
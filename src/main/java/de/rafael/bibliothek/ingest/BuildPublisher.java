@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.ingest;
+
+import de.rafael.bibliothek.changelog.Changelog;
+import de.rafael.bibliothek.changelog.ChangelogIndexer;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Group;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.BuildSequenceRepository;
+import de.rafael.bibliothek.storage.ArtifactStore;
+import de.rafael.bibliothek.storage.Blobs;
+import de.rafael.bibliothek.throwables.BuildAlreadyExists;
+import de.rafael.bibliothek.throwables.InvalidUpload;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes builds in a single pass over their files, each upload is hashed while it is written to a temporary file and
+ * only handed to the {@link ArtifactStore} once the whole request was validated. The build document is inserted last, so
+ * it never references files that are missing.
+ *
+ * @author Rafael K.
+ * @since 16:10, 19.10.26
+ */
+
+@Component
+public class BuildPublisher {
+
+    private static final FindAndModifyOptions UPSERT = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+    private final Path temporary;
+    private final ArtifactStore store;
+    private final MongoTemplate template;
+    private final BuildRepository builds;
+    private final BuildSequenceRepository sequences;
+    private final ChangelogIndexer changelog;
+    private final Changelog changes;
+
+    @Autowired
+    public BuildPublisher(AppConfiguration configuration, ArtifactStore store, MongoTemplate template, BuildRepository builds, BuildSequenceRepository sequences, ChangelogIndexer changelog, Changelog changes) {
+        // Next to the blobs, so the sharded store can hard link instead of copying
+        this.temporary = configuration.getStoragePath().resolve("ingest");
+        this.store = store;
+        this.template = template;
+        this.builds = builds;
+        this.sequences = sequences;
+        this.changelog = changelog;
+        this.changes = changes;
+    }
+
+    /**
+     * Writes the upload to a temporary file and hashes it, nothing is stored until {@link #store(Staged)}.
+     * The caller has to close the returned file.
+     */
+    public @NotNull Staged stage(@NotNull InputStream input) throws IOException {
+        Files.createDirectories(this.temporary);
+        var file = Files.createTempFile(this.temporary, "upload-", ".tmp");
+        try {
+            return new Staged(file, Blobs.copy(input, file));
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(file);
+            throw exception;
+        }
+    }
+
+    /**
+     * @return sha256 the upload is stored under
+     */
+    public @NotNull String store(@NotNull Staged staged) throws IOException {
+        this.store.store(staged.sha256(), staged.file());
+        return staged.sha256();
+    }
+
+    /**
+     * Creates project, group and version if they do not exist yet and inserts the build.
+     *
+     * @param downloads stored files by type, a null name is replaced by {@code <project>-<version>-<build>.jar}
+     */
+    public @NotNull Build publish(@NotNull Publication publication, @NotNull Map<String, Upload> downloads) throws IOException {
+        var now = Instant.now();
+        var project = this.upsert(
+                Criteria.where("name").is(publication.project()),
+                new Update().setOnInsert("friendlyName", publication.friendlyName()),
+                Project.class
+        );
+        var group = this.upsert(
+                Criteria.where("project").is(project._id()).and("name").is(publication.group()),
+                new Update().setOnInsert("timestamp", now),
+                Group.class
+        );
+        var version = this.upsert(
+                Criteria.where("project").is(project._id()).and("name").is(publication.version()),
+                new Update().setOnInsert("group", group._id()).setOnInsert("timestamp", now),
+                Version.class
+        );
+
+        // Before a number is taken, a failing repository must not leave a gap
+        var commits = List.<String>of();
+        if (publication.commit() != null && this.changelog.supports(project.name())) {
+            try {
+                commits = this.changelog.index(project.name(), this.previousCommit(project._id(), version._id()), publication.commit());
+            } catch (MissingObjectException exception) {
+                throw new InvalidUpload("Unknown commit: " + publication.commit());
+            }
+        }
+        if (commits.isEmpty()) {
+            commits = this.changes.store(publication.changes());
+        }
+
+        int number;
+        if (publication.number() == null) {
+            number = this.sequences.next(project._id(), version._id());
+        } else {
+            number = publication.number();
+            this.sequences.advance(project._id(), version._id(), number);
+        }
+
+        var files = new LinkedHashMap<String, Build.Download>();
+        downloads.forEach((type, upload) -> files.put(type, new Build.Download(
+                upload.name() == null ? project.name() + "-" + version.name() + "-" + number + ".jar" : upload.name(),
+                upload.sha256()
+        )));
+        try {
+            // Saving publishes the build, see BuildWatcher
+            return this.builds.insert(new Build(new ObjectId(), project._id(), version._id(), number, now, null, commits, files, publication.channel(), Build.DisplayMode.HIDE));
+        } catch (DuplicateKeyException exception) {
+            // The unique index on project, version and number decides between concurrent publishers
+            throw new BuildAlreadyExists();
+        }
+    }
+
+    /**
+     * @return newest commit of the latest build with a changelog, embedded changes of older builds included
+     */
+    private @Nullable String previousCommit(@NotNull ObjectId project, @NotNull ObjectId version) {
+        var query = Query.query(Criteria.where("project").is(project).and("version").is(version)
+                        .orOperator(Criteria.where("commits.0").exists(true), Criteria.where("changes.0").exists(true)))
+                .with(Sort.by(Sort.Direction.DESC, "number"))
+                .limit(1);
+        var build = this.template.findOne(query, Build.class);
+        if (build == null) {
+            return null;
+        }
+        return build.commits() != null && !build.commits().isEmpty() ? build.commits().get(0) : build.changes().get(0).commit();
+    }
+
+    private <T> @NotNull T upsert(@NotNull Criteria criteria, @NotNull Update update, @NotNull Class<T> type) {
+        return this.template.findAndModify(Query.query(criteria), update, UPSERT, type);
+    }
+
+    /**
+     * @param number  build number, the next free one if null
+     * @param changes stored as commits, only used without a changelog repository
+     * @param commit  commit the build was made from, indexed from the project's changelog repository if there is one
+     */
+    public record Publication(String project, String friendlyName, String group, String version, @Nullable Integer number, Build.Channel channel, List<Build.Change> changes, @Nullable String commit) {}
+
+    /**
+     * An upload written to a temporary file, closing deletes the file.
+     */
+    public record Staged(Path file, String sha256) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(this.file);
+        }
+
+    }
+
+    /**
+     * @param name file name offered to clients, generated if null
+     */
+    public record Upload(@Nullable String name, String sha256) {}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets per client and globally, one pair for the request rate and one for download bandwidth.
+ * Buckets of clients that have been idle for a while are dropped, they would be full again anyway.
+ *
+ * @author Rafael K.
+ * @since 15:12, 19.10.26
+ */
+
+@Component
+public class RateLimiter {
+
+    private static final Duration IDLE = Duration.ofMinutes(10);
+
+    private final @Nullable Clients clientRequests;
+    private final @Nullable TokenBucket requests;
+    private final @Nullable Clients clientBytes;
+    private final @Nullable TokenBucket bytes;
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter rejectedByClient;
+    private final Counter rejectedGlobally;
+    private final Counter delayed;
+
+    @Autowired
+    public RateLimiter(AppConfiguration configuration, MeterRegistry registry) {
+        var limits = configuration.getRateLimit();
+        this.clientRequests = clients(limits.getRequestsPerClient(), limits.getMaximumClients());
+        this.requests = bucket(limits.getRequests());
+        this.clientBytes = clients(limits.getBytesPerClient(), limits.getMaximumClients());
+        this.bytes = bucket(limits.getBytes());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "download-throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.rejectedByClient = Counter.builder("ratelimit.requests.rejected").tag("bucket", "client").register(registry);
+        this.rejectedGlobally = Counter.builder("ratelimit.requests.rejected").tag("bucket", "global").register(registry);
+        this.delayed = Counter.builder("ratelimit.downloads.delayed").description("Chunks of downloads that had to wait for bandwidth").register(registry);
+        if (this.clientRequests != null) {
+            Gauge.builder("ratelimit.clients", this.clientRequests.buckets(), Cache::estimatedSize).register(registry);
+        }
+    }
+
+    /**
+     * @return 0 if the request may proceed, otherwise the nanoseconds until it may be retried
+     */
+    public long acquireRequest(@NotNull HttpServletRequest request) {
+        var client = this.clientRequests == null ? null : this.clientRequests.get(request);
+        if (client != null) {
+            var wait = client.tryAcquire(1);
+            if (wait > 0) {
+                this.rejectedByClient.increment();
+                return wait;
+            }
+        }
+        if (this.requests != null) {
+            var wait = this.requests.tryAcquire(1);
+            if (wait > 0) {
+                // The client is not charged for a request the global limit rejected
+                if (client != null) {
+                    client.release(1);
+                }
+                this.rejectedGlobally.increment();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the bandwidth budget of a download or null if downloads are not shaped
+     */
+    public @Nullable Throttle throttle(@NotNull HttpServletRequest request, int maximumChunk) {
+        if (this.clientBytes == null && this.bytes == null) {
+            return null;
+        }
+        var client = this.clientBytes == null ? null : this.clientBytes.get(request);
+        return new Throttle(client, this.bytes, this.scheduler, this.delayed::increment, maximumChunk);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    private static @Nullable Clients clients(@NotNull AppConfiguration.Limit limit, long maximumClients) {
+        if (!limit.isEnabled()) {
+            return null;
+        }
+        Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterAccess(IDLE)
+                .build();
+        return new Clients(buckets, limit);
+    }
+
+    private static @Nullable TokenBucket bucket(@NotNull AppConfiguration.Limit limit) {
+        return limit.isEnabled() ? new TokenBucket(limit.getRate(), limit.getBurst()) : null;
+    }
+
+    private record Clients(Cache<String, TokenBucket> buckets, AppConfiguration.Limit limit) {
+
+        /**
+         * The proxy's forwarded headers are already applied to the address by the forwarded header filter.
+         */
+        private @NotNull TokenBucket get(@NotNull HttpServletRequest request) {
+            return this.buckets.get(request.getRemoteAddr(), key -> new TokenBucket(this.limit.getRate(), this.limit.getBurst()));
+        }
+
+    }
+
+}
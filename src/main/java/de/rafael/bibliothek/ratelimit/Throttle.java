@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.ratelimit;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bandwidth budget of one download, backed by the client's and the global byte bucket.
+ *
+ * @author Rafael K.
+ * @since 15:31, 19.10.26
+ */
+
+public final class Throttle {
+
+    private final @Nullable TokenBucket client;
+    private final @Nullable TokenBucket global;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable delayed;
+    private final int chunk;
+
+    Throttle(@Nullable TokenBucket client, @Nullable TokenBucket global, @NotNull ScheduledExecutorService scheduler, @NotNull Runnable delayed, int maximumChunk) {
+        this.client = client;
+        this.global = global;
+        this.scheduler = scheduler;
+        this.delayed = delayed;
+        var chunk = (long) maximumChunk;
+        if (client != null) {
+            chunk = Math.min(chunk, client.burst());
+        }
+        if (global != null) {
+            chunk = Math.min(chunk, global.burst());
+        }
+        this.chunk = (int) chunk;
+    }
+
+    /**
+     * @return the largest number of bytes to request at once
+     */
+    public int chunk() {
+        return this.chunk;
+    }
+
+    /**
+     * @return 0 if the bytes may be sent now, otherwise the nanoseconds to wait before asking again
+     */
+    public long acquire(int bytes) {
+        if (this.client != null) {
+            var wait = this.client.tryAcquire(bytes);
+            if (wait > 0) {
+                this.delayed.run();
+                return wait;
+            }
+        }
+        if (this.global != null) {
+            var wait = this.global.tryAcquire(bytes);
+            if (wait > 0) {
+                if (this.client != null) {
+                    this.client.release(bytes);
+                }
+                this.delayed.run();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Blocks until the bytes may be sent, for writes on the request thread.
+     */
+    public void await(int bytes) throws InterruptedIOException {
+        long wait;
+        while ((wait = this.acquire(bytes)) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+    }
+
+    public void schedule(@NotNull Runnable task, long delay) {
+        this.scheduler.schedule(task, delay, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm on a single {@link AtomicLong}.
+ * Instead of a token count the bucket stores the time at which it would be full again, taking tokens moves that time
+ * forward by their cost. A request is rejected if that time would lie more than one full burst in the future.
+ *
+ * @author Rafael K.
+ * @since 15:04, 19.10.26
+ */
+
+public final class TokenBucket {
+
+    private final long rate;
+    private final long burst;
+    private final long tolerance;
+    private final AtomicLong full;
+
+    /**
+     * @param rate  tokens added per second
+     * @param burst capacity of the bucket, it starts full
+     */
+    public TokenBucket(long rate, long burst) {
+        if (rate <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst have to be positive");
+        }
+        this.rate = rate;
+        this.burst = burst;
+        this.tolerance = this.cost(burst);
+        this.full = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return 0 if the tokens were taken, otherwise the nanoseconds until they will be available
+     */
+    public long tryAcquire(long tokens) {
+        var cost = this.cost(tokens);
+        while (true) {
+            var now = System.nanoTime();
+            var current = this.full.get();
+            var next = (now - current > 0 ? now : current) + cost;
+            var wait = next - now - this.tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (this.full.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back tokens that were taken but not used.
+     */
+    public void release(long tokens) {
+        this.full.addAndGet(-this.cost(tokens));
+    }
+
+    public long burst() {
+        return this.burst;
+    }
+
+    private long cost(long tokens) {
+        return tokens * TimeUnit.SECONDS.toNanos(1) / this.rate;
+    }
+
+}
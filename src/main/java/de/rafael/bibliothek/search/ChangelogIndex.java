@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.search;
+
+import de.rafael.bibliothek.database.model.Build;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted index over the changes of one project. Every commit is indexed once, under an ordinal in the order it was
+ * first seen, together with the earliest build that contained it. Terms of the summary and the message point to the
+ * commits through {@link Postings}, commits can also be found by a prefix of their hash.
+ * All terms of a query have to match, the last one is completed like a prefix. Commits are ranked by the rarity of the
+ * matched terms, summaries count twice, and the earliest build comes first between equal scores.
+ *
+ * @author Rafael K.
+ * @since 20:51, 19.10.26
+ */
+
+public final class ChangelogIndex {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{4,40}");
+    private static final int MINIMUM_TERM_LENGTH = 2;
+    // Longer tokens are mostly pasted output, hashes still fit
+    private static final int MAXIMUM_TERM_LENGTH = 40;
+    private static final float SUMMARY_WEIGHT = 2;
+    private static final float HASH_WEIGHT = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final TreeMap<String, Integer> hashes = new TreeMap<>();
+    private final List<String> commits = new ArrayList<>();
+    private final List<String> summaries = new ArrayList<>();
+    private final List<Reference> first = new ArrayList<>();
+
+    /**
+     * Adding the same build again changes nothing, builds may be added in any order.
+     */
+    public void add(@NotNull Reference build, @NotNull Collection<Build.Change> changes) {
+        this.lock.writeLock().lock();
+        try {
+            for (Build.Change change : changes) {
+                var commit = this.hashes.get(change.commit());
+                if (commit != null) {
+                    if (build.timestamp().isBefore(this.first.get(commit).timestamp())) {
+                        this.first.set(commit, build);
+                    }
+                    continue;
+                }
+                commit = this.commits.size();
+                this.hashes.put(change.commit(), commit);
+                this.commits.add(change.commit());
+                this.summaries.add(change.summary());
+                this.first.add(build);
+                this.index(commit, change.summary(), true);
+                this.index(commit, change.message(), false);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public @NotNull List<Hit> search(@NotNull String query, int limit) {
+        var tokens = tokens(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        this.lock.readLock().lock();
+        try {
+            var matches = new ArrayList<Matches>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                var match = this.match(tokens.get(i), i == tokens.size() - 1);
+                if (match.size() == 0) {
+                    return List.of();
+                }
+                matches.add(match);
+            }
+            // Starting with the rarest token keeps every intersection as small as the result
+            matches.sort(Comparator.comparingInt(Matches::size));
+            var candidates = matches.get(0);
+            for (int i = 1; i < matches.size() && candidates.size() > 0; i++) {
+                candidates = candidates.intersect(matches.get(i));
+            }
+            return this.best(candidates, limit);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.commits.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private @NotNull Matches match(@NotNull String token, boolean prefix) {
+        var count = this.commits.size();
+        var terms = prefix ? this.terms.subMap(token, token + Character.MAX_VALUE).values() : single(this.terms.get(token));
+        var hashes = HASH.matcher(token).matches() ? this.hashes.subMap(token, token + Character.MAX_VALUE).values() : List.<Integer>of();
+
+        if (terms.size() == 1 && hashes.isEmpty()) {
+            // A single posting list is already sorted and free of duplicates
+            var postings = terms.iterator().next();
+            var weight = weight(count, postings.size());
+            var commits = new int[postings.size()];
+            var scores = new float[postings.size()];
+            for (int i = 0; i < postings.size(); i++) {
+                var entry = postings.get(i);
+                commits[i] = Postings.commit(entry);
+                scores[i] = Postings.summary(entry) ? weight * SUMMARY_WEIGHT : weight;
+            }
+            return new Matches(commits, scores, commits.length);
+        }
+
+        // Commit in the upper half and score in the lower half, scores are positive so their bits sort like their values
+        var length = hashes.size();
+        for (Postings postings : terms) {
+            length += postings.size();
+        }
+        var pairs = new long[length];
+        var index = 0;
+        for (Postings postings : terms) {
+            var weight = weight(count, postings.size());
+            for (int i = 0; i < postings.size(); i++) {
+                var entry = postings.get(i);
+                pairs[index++] = pair(Postings.commit(entry), Postings.summary(entry) ? weight * SUMMARY_WEIGHT : weight);
+            }
+        }
+        var weight = (float) Math.log(1 + count) * HASH_WEIGHT;
+        for (int commit : hashes) {
+            pairs[index++] = pair(commit, weight);
+        }
+        Arrays.sort(pairs);
+
+        // Several completions of a prefix may match the same commit, only the best one counts
+        var commits = new int[length];
+        var scores = new float[length];
+        var size = 0;
+        for (int i = 0; i < length; i++) {
+            var commit = (int) (pairs[i] >>> 32);
+            if (i + 1 < length && (int) (pairs[i + 1] >>> 32) == commit) {
+                continue;
+            }
+            commits[size] = commit;
+            scores[size++] = Float.intBitsToFloat((int) pairs[i]);
+        }
+        return new Matches(commits, scores, size);
+    }
+
+    /**
+     * Keeps the best hits in a small sorted array, most candidates are rejected by comparing them with the last one.
+     */
+    private @NotNull List<Hit> best(@NotNull Matches candidates, int limit) {
+        var top = new int[Math.min(limit, candidates.size())];
+        var size = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (size == top.length && !this.better(candidates, i, top[size - 1])) {
+                continue;
+            }
+            var position = size < top.length ? size++ : size - 1;
+            while (position > 0 && this.better(candidates, i, top[position - 1])) {
+                top[position] = top[position - 1];
+                position--;
+            }
+            top[position] = i;
+        }
+
+        var hits = new ArrayList<Hit>(size);
+        for (int i = 0; i < size; i++) {
+            var commit = candidates.commits()[top[i]];
+            hits.add(new Hit(this.commits.get(commit), this.summaries.get(commit), candidates.scores()[top[i]], this.first.get(commit)));
+        }
+        return hits;
+    }
+
+    private boolean better(@NotNull Matches candidates, int index, int other) {
+        var score = candidates.scores()[index];
+        var otherScore = candidates.scores()[other];
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        return this.first.get(candidates.commits()[index]).timestamp().isBefore(this.first.get(candidates.commits()[other]).timestamp());
+    }
+
+    private void index(int commit, @Nullable String text, boolean summary) {
+        for (String term : tokens(text)) {
+            this.terms.computeIfAbsent(term, key -> new Postings()).add(commit, summary);
+        }
+    }
+
+    private static @NotNull List<String> tokens(@Nullable String text) {
+        if (text == null) {
+            return List.of();
+        }
+        var tokens = new LinkedHashSet<String>();
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() >= MINIMUM_TERM_LENGTH && token.length() <= MAXIMUM_TERM_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static float weight(int count, int frequency) {
+        return (float) Math.log(1 + (double) count / frequency);
+    }
+
+    private static long pair(int commit, float score) {
+        return (long) commit << 32 | Float.floatToIntBits(score) & 0xFFFFFFFFL;
+    }
+
+    private static @NotNull List<Postings> single(@Nullable Postings postings) {
+        return postings == null ? List.of() : List.of(postings);
+    }
+
+    /**
+     * Commits matched by one token in ascending order, the first {@code size} entries are used.
+     */
+    private record Matches(int[] commits, float[] scores, int size) {
+
+        private @NotNull Matches intersect(@NotNull Matches other) {
+            var commits = new int[Math.min(this.size, other.size)];
+            var scores = new float[commits.length];
+            var size = 0;
+            for (int i = 0, j = 0; i < this.size && j < other.size; ) {
+                var commit = this.commits[i];
+                var otherCommit = other.commits[j];
+                if (commit < otherCommit) {
+                    i++;
+                } else if (commit > otherCommit) {
+                    j++;
+                } else {
+                    commits[size] = commit;
+                    scores[size++] = this.scores[i++] + other.scores[j++];
+                }
+            }
+            return new Matches(commits, scores, size);
+        }
+
+    }
+
+    /**
+     * @param build number of the build within its version
+     */
+    public record Reference(String version, int build, Instant timestamp, Build.Channel channel) {}
+
+    /**
+     * @param build earliest build that contained the commit
+     */
+    public record Hit(String commit, String summary, float score, Reference build) {}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.search;
+
+import de.rafael.bibliothek.cache.MetadataCache;
+import de.rafael.bibliothek.changelog.Changelog;
+import de.rafael.bibliothek.database.event.BuildPublishedEvent;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a {@link ChangelogIndex} per project. All builds are indexed on the application task executor once the application
+ * is ready, every published build is added as it comes in. Both may overlap, adding a build twice does not change the
+ * index. If the database is not reachable, the initial indexing is retried with an increasing delay until it succeeds.
+ *
+ * @author Rafael K.
+ * @since 21:07, 19.10.26
+ */
+
+@Component
+public class ChangelogSearch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangelogSearch.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final Duration FIRST_RETRY = Duration.ofSeconds(5);
+    private static final Duration MAXIMUM_RETRY = Duration.ofMinutes(5);
+
+    private final MongoTemplate template;
+    private final MetadataCache metadata;
+    private final Changelog changelog;
+    private final Executor executor;
+    private final TaskScheduler scheduler;
+    private final ConcurrentMap<ObjectId, ChangelogIndex> indexes = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @Autowired
+    public ChangelogSearch(MongoTemplate template, MetadataCache metadata, Changelog changelog, @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor, TaskScheduler scheduler) {
+        this.template = template;
+        this.metadata = metadata;
+        this.changelog = changelog;
+        this.executor = executor;
+        this.scheduler = scheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.executor.execute(() -> this.load(FIRST_RETRY));
+    }
+
+    /**
+     * @param retry delay before the next attempt if this one fails
+     */
+    private void load(@NotNull Duration retry) {
+        var start = System.nanoTime();
+        var query = new Query();
+        query.fields().include("project", "version", "number", "timestamp", "channel", "changes", "commits");
+        var batch = new ArrayList<Build>(BATCH_SIZE);
+        long builds = 0;
+
+        try (var stream = this.template.stream(query, Build.class)) {
+            for (var iterator = stream.iterator(); iterator.hasNext(); ) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    // One commit query per batch instead of one per build
+                    this.changelog.prefetch(batch, Changelog.Detail.FULL);
+                    batch.forEach(this::add);
+                    builds += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (DataAccessException exception) {
+            LOGGER.error("Could not build the changelog search index, retrying in {} s: {}", retry.toSeconds(), exception.getMessage());
+            var next = retry.multipliedBy(2).compareTo(MAXIMUM_RETRY) > 0 ? MAXIMUM_RETRY : retry.multipliedBy(2);
+            // The scheduler only triggers, the scan itself must not block scheduled tasks
+            this.scheduler.schedule(() -> this.executor.execute(() -> this.load(next)), Instant.now().plus(retry));
+            return;
+        }
+
+        this.ready = true;
+        var commits = this.indexes.values().stream().mapToLong(ChangelogIndex::size).sum();
+        LOGGER.info("Indexed {} commits of {} builds for search in {} ms", commits, builds, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1) // After the metadata cache, before the generations advance
+    public void onBuildPublished(@NotNull BuildPublishedEvent event) {
+        this.add(event.build());
+    }
+
+    /**
+     * @return whether all builds from before the start are indexed, results may be incomplete until then
+     */
+    public boolean ready() {
+        return this.ready;
+    }
+
+    public @NotNull List<ChangelogIndex.Hit> search(@NotNull Project project, @NotNull String query, int limit) {
+        var index = this.indexes.get(project._id());
+        return index == null ? List.of() : index.search(query, limit);
+    }
+
+    private void add(@NotNull Build build) {
+        var version = this.metadata.findVersion(build.version());
+        var changes = this.changelog.changes(build, Changelog.Detail.FULL);
+        if (version.isEmpty() || changes == null || changes.isEmpty()) {
+            return;
+        }
+        var reference = new ChangelogIndex.Reference(version.get().name(), build.number(), build.timestamp(), build.channel());
+        this.indexes.computeIfAbsent(build.project(), key -> new ChangelogIndex()).add(reference, changes);
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable posting list of one term. Every entry is a commit ordinal shifted left by one, with the lowest bit set when
+ * the term occurs in the summary. Commits are appended in ordinal order, so the list stays sorted without any work.
+ *
+ * @author Rafael K.
+ * @since 20:44, 19.10.26
+ */
+
+final class Postings {
+
+    private int[] entries = new int[2];
+    private int size;
+
+    void add(int commit, boolean summary) {
+        // A term is only listed once per commit, the summary comes first and takes precedence
+        if (this.size > 0 && this.entries[this.size - 1] >>> 1 == commit) {
+            return;
+        }
+        if (this.size == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries, this.size + (this.size >> 1));
+        }
+        this.entries[this.size++] = commit << 1 | (summary ? 1 : 0);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    static int commit(int entry) {
+        return entry >>> 1;
+    }
+
+    static boolean summary(int entry) {
+        return (entry & 1) != 0;
+    }
+
+    int get(int index) {
+        return this.entries[index];
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.stats;
+
+import de.rafael.bibliothek.database.model.DownloadStats;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts downloads in memory and writes them to {@code download_stats} in batches.
+ * Counting is a {@link LongAdder} increment, so concurrent downloads of the same file do not contend. Counters are never
+ * reset, every flush writes the difference to the last flushed sum as {@code $inc}. Downloads counted while a flush is
+ * running are therefore picked up by the next one instead of being lost. Pending counts are flushed on shutdown.
+ *
+ * @author Rafael K.
+ * @since 12:47, 19.10.26
+ */
+
+@Component
+public class DownloadCounter {
+
+    private final MongoTemplate template;
+    private final ConcurrentMap<Key, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DownloadCounter(MongoTemplate template) {
+        this.template = template;
+    }
+
+    public void increment(@NotNull String project, @NotNull String version, int build, @NotNull String download) {
+        var key = new Key(project, version, build, download);
+        var counter = this.counters.get(key);
+        if (counter == null) {
+            counter = this.counters.computeIfAbsent(key, value -> new Counter());
+        }
+        counter.count.increment();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.stats-flush-interval:PT30S}")
+    public synchronized void flush() {
+        var now = Instant.now();
+        var flushed = new ArrayList<Runnable>();
+        var operations = this.template.bulkOps(BulkOperations.BulkMode.UNORDERED, DownloadStats.class);
+        this.counters.forEach((key, counter) -> {
+            var sum = counter.count.sum();
+            var delta = sum - counter.flushed;
+            if (delta == 0) {
+                return;
+            }
+            operations.upsert(
+                    Query.query(Criteria.where("project").is(key.project())
+                            .and("version").is(key.version())
+                            .and("build").is(key.build())
+                            .and("download").is(key.download())),
+                    new Update().inc("count", delta).set("updated", now)
+            );
+            flushed.add(() -> counter.flushed = sum);
+        });
+        if (flushed.isEmpty()) {
+            return;
+        }
+        // Only remember what was written, failed upserts are retried by the next flush
+        try {
+            operations.execute();
+        } catch (BulkOperationException exception) {
+            // Unordered, so every operation without an error was applied
+            var failed = new BitSet(flushed.size());
+            exception.getErrors().forEach(error -> failed.set(error.getIndex()));
+            for (int i = 0; i < flushed.size(); i++) {
+                if (!failed.get(i)) {
+                    flushed.get(i).run();
+                }
+            }
+            throw exception;
+        }
+        flushed.forEach(Runnable::run);
+    }
+
+    private record Key(String project, String version, int build, String download) {}
+
+    private static final class Counter {
+
+        private final LongAdder count = new LongAdder();
+        /**
+         * Only accessed while flushing, which is synchronized
+         */
+        private long flushed;
+
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves blobs to the root owning them after {@code app.storage.roots} changed, enabled with {@code app.migration.rebalance=true}.
+ *
+ * @author Rafael K.
+ * @since 11:31, 19.10.26
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "app.migration", name = "rebalance", havingValue = "true")
+public class ArtifactRebalancer implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactRebalancer.class);
+
+    private final ArtifactStore store;
+
+    @Autowired
+    public ArtifactRebalancer(ArtifactStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void run(ApplicationArguments arguments) throws IOException {
+        if (!(this.store instanceof ShardedArtifactStore sharded)) {
+            throw new IllegalStateException("Rebalancing requires app.storage.type=sharded");
+        }
+        var start = System.nanoTime();
+        var result = sharded.rebalance();
+        LOGGER.info("Rebalance finished in {}s: {} blobs moved ({} MiB), {} duplicates removed",
+                (System.nanoTime() - start) / 1_000_000_000, result.moved(), result.bytes() / (1024 * 1024), result.removed());
+    }
+
+}
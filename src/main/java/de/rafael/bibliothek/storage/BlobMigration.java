@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the existing {@code project/version/build/name} tree into the {@link ArtifactStore}, enabled with
+ * {@code app.migration.blobs=true}. The first copy of every hash is stored, local stores hard link it where possible.
+ * Every further copy is replaced by a hard link to that blob, so the old paths keep working while identical files only
+ * occupy the disk once. Every file is verified against its stored sha256 first, the migration can be run repeatedly.
+ *
+ * @author Rafael K.
+ * @since 23:02, 18.10.26
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "app.migration", name = "blobs", havingValue = "true")
+public class BlobMigration implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlobMigration.class);
+
+    private final Path storagePath;
+    private final ArtifactStore store;
+    private final MongoTemplate template;
+    private final ProjectRepository projects;
+    private final VersionRepository versions;
+
+    @Autowired
+    public BlobMigration(AppConfiguration configuration, ArtifactStore store, MongoTemplate template, ProjectRepository projects, VersionRepository versions) {
+        this.storagePath = configuration.getStoragePath();
+        this.store = store;
+        this.template = template;
+        this.projects = projects;
+        this.versions = versions;
+    }
+
+    @Override
+    public void run(ApplicationArguments arguments) throws IOException {
+        Map<ObjectId, String> projectNames = this.projects.findAll().stream().collect(Collectors.toMap(Project::_id, Project::name));
+        Map<ObjectId, Version> versionsById = this.versions.findAll().stream().collect(Collectors.toMap(Version::_id, Function.identity()));
+        var result = new Result();
+
+        try (var builds = this.template.stream(new Query(), Build.class)) {
+            for (var iterator = builds.iterator(); iterator.hasNext(); ) {
+                var build = iterator.next();
+                var project = projectNames.get(build.project());
+                var version = versionsById.get(build.version());
+                if (project == null || version == null || build.downloads() == null) {
+                    continue;
+                }
+                for (Build.Download download : build.downloads().values()) {
+                    var file = this.storagePath.resolve(project).resolve(version.name()).resolve(String.valueOf(build.number())).resolve(download.name());
+                    this.migrate(file, download.sha256(), result);
+                }
+            }
+        }
+
+        LOGGER.info("Blob migration finished: {} blobs created, {} files deduplicated ({} MiB freed), {} already migrated, {} missing, {} hash mismatches",
+                result.created, result.deduplicated, result.freed / (1024 * 1024), result.skipped, result.missing, result.mismatched);
+    }
+
+    private void migrate(@NotNull Path file, @NotNull String sha256, @NotNull Result result) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            result.missing++;
+            return;
+        }
+        var artifact = this.store.find(sha256);
+        var blob = artifact == null ? null : artifact.path();
+        if (artifact != null && (blob == null || Files.isSameFile(blob, file))) {
+            result.skipped++;
+            return;
+        }
+        if (!Blobs.sha256(file).equals(sha256)) {
+            LOGGER.warn("Skipping {}, its content does not match the stored sha256 {}", file, sha256);
+            result.mismatched++;
+            return;
+        }
+
+        if (artifact == null) {
+            this.store.store(sha256, file);
+            result.created++;
+            return;
+        }
+
+        // Replace the duplicate with a link to the blob, going through a temporary link keeps the old path valid at all times
+        var size = Files.size(file);
+        var temporary = file.resolveSibling(file.getFileName() + ".blob");
+        Files.deleteIfExists(temporary);
+        try {
+            Files.createLink(temporary, blob);
+        } catch (UnsupportedOperationException | FileSystemException exception) {
+            // The blob is a copy on another file system, the old path is still served from the blob
+            result.skipped++;
+            return;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        result.deduplicated++;
+        result.freed += size;
+    }
+
+    private static final class Result {
+
+        private long created;
+        private long deduplicated;
+        private long skipped;
+        private long missing;
+        private long mismatched;
+        private long freed;
+
+    }
+
+}
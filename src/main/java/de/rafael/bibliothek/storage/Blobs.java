@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Content-addressable layout of the storage, every file is stored once as {@code blobs/<first two hex digits>/<sha256>}.
+ *
+ * @author Rafael K.
+ * @since 22:48, 18.10.26
+ */
+
+public final class Blobs {
+
+    @Language("RegExp")
+    public static final String PATTERN = "[a-f0-9]{64}";
+    public static final String DIRECTORY = "blobs";
+
+    private Blobs() {}
+
+    public static @NotNull Path path(@NotNull Path storagePath, @NotNull String sha256) {
+        return storagePath.resolve(DIRECTORY).resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    public static @NotNull String sha256(@NotNull Path path) throws IOException {
+        try (var input = Files.newInputStream(path)) {
+            return sha256(input);
+        }
+    }
+
+    public static @NotNull String sha256(@NotNull InputStream input) throws IOException {
+        var digest = digest();
+        var buffer = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Writes {@code input} to {@code target} and hashes it in the same pass.
+     *
+     * @return sha256 of the written content
+     */
+    public static @NotNull String copy(@NotNull InputStream input, @NotNull Path target) throws IOException {
+        var digest = digest();
+        var buffer = new byte[64 * 1024];
+        try (var output = Files.newOutputStream(target)) {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+                output.write(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static @NotNull MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Stores blobs as objects in an S3 compatible bucket, e.g. AWS S3 or MinIO.
+ * Downloads are streamed from ranged GET requests, so several instances can share the bucket and scale bandwidth with it.
+ *
+ * @author Rafael K.
+ * @since 11:02, 19.10.26
+ */
+
+public class S3ArtifactStore implements ArtifactStore {
+
+    private final S3Client client;
+    private final String bucket;
+    private final String prefix;
+
+    public S3ArtifactStore(@NotNull S3Client client, @NotNull String bucket, @NotNull String prefix) {
+        this.client = client;
+        this.bucket = bucket;
+        this.prefix = prefix;
+    }
+
+    public static @NotNull S3Client client(@NotNull AppConfiguration.S3 configuration) {
+        var builder = S3Client.builder()
+                .region(Region.of(configuration.getRegion()))
+                .forcePathStyle(configuration.isPathStyleAccess());
+        if (configuration.getEndpoint() != null) {
+            builder.endpointOverride(configuration.getEndpoint());
+        }
+        if (configuration.getAccessKey() != null) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(configuration.getAccessKey(), configuration.getSecretKey())));
+        } else {
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public @Nullable Artifact find(@NotNull String sha256) throws IOException {
+        var key = this.key(sha256);
+        try {
+            var head = this.client.headObject(request -> request.bucket(this.bucket).key(key));
+            return new S3Artifact(key, head.contentLength(), head.lastModified().toEpochMilli());
+        } catch (NoSuchKeyException exception) {
+            return null;
+        } catch (S3Exception exception) {
+            // HEAD responses have no body, a missing object is only visible in the status
+            if (exception.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException(exception);
+        } catch (SdkException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    @Override
+    public void store(@NotNull String sha256, @NotNull Path source) throws IOException {
+        if (this.find(sha256) != null) {
+            return;
+        }
+        try {
+            this.client.putObject(request -> request.bucket(this.bucket).key(this.key(sha256)), RequestBody.fromFile(source));
+        } catch (SdkException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    private @NotNull String key(@NotNull String sha256) {
+        return this.prefix + sha256.substring(0, 2) + "/" + sha256;
+    }
+
+    private final class S3Artifact implements Artifact {
+
+        private final String key;
+        private final long length;
+        private final long lastModified;
+
+        private S3Artifact(String key, long length, long lastModified) {
+            this.key = key;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public long length() {
+            return this.length;
+        }
+
+        @Override
+        public long lastModified() {
+            return this.lastModified;
+        }
+
+        @Override
+        public @NotNull InputStream open(long position, long length) throws IOException {
+            try {
+                return S3ArtifactStore.this.client.getObject(request -> request
+                        .bucket(S3ArtifactStore.this.bucket)
+                        .key(this.key)
+                        .range("bytes=" + position + "-" + (position + length - 1)));
+            } catch (SdkException exception) {
+                throw new IOException(exception);
+            }
+        }
+
+    }
+
+}
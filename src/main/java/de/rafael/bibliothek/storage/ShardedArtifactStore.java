@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Spreads blobs over several storage roots, usually one per disk, with consistent hashing.
+ * Every root owns {@code virtualNodes} points on a ring, a blob belongs to the root owning the next point after the first
+ * eight bytes of its hash. Adding a root therefore only moves the blobs that now fall onto its points, which is done by
+ * {@link #rebalance()}. Until then blobs are still found on their old root.
+ *
+ * @author Rafael K.
+ * @since 10:24, 19.10.26
+ */
+
+public class ShardedArtifactStore implements ArtifactStore {
+
+    private static final Pattern BLOB = Pattern.compile(Blobs.PATTERN);
+
+    private final List<Path> roots;
+    private final NavigableMap<Long, Path> ring = new TreeMap<>();
+
+    public ShardedArtifactStore(@NotNull List<Path> roots, int virtualNodes) {
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("At least one storage root is required");
+        }
+        this.roots = List.copyOf(roots);
+        for (Path root : this.roots) {
+            var name = root.toAbsolutePath().normalize().toString();
+            for (int node = 0; node < virtualNodes; node++) {
+                var digest = Blobs.digest().digest((name + "#" + node).getBytes(StandardCharsets.UTF_8));
+                this.ring.put(point(digest), root);
+            }
+        }
+    }
+
+    public @NotNull Path owner(@NotNull String sha256) {
+        var entry = this.ring.ceilingEntry(Long.parseUnsignedLong(sha256.substring(0, 16), 16));
+        return entry == null ? this.ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    @Override
+    public @Nullable Artifact find(@NotNull String sha256) throws IOException {
+        var owner = this.owner(sha256);
+        var artifact = find(owner, sha256);
+        if (artifact != null) {
+            return artifact;
+        }
+        // Not rebalanced yet
+        for (Path root : this.roots) {
+            if (!root.equals(owner) && (artifact = find(root, sha256)) != null) {
+                return artifact;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void store(@NotNull String sha256, @NotNull Path source) throws IOException {
+        if (this.find(sha256) != null) {
+            return;
+        }
+        var target = Blobs.path(this.owner(sha256), sha256);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException exception) {
+            // Stored concurrently, same hash means same content
+        } catch (UnsupportedOperationException | FileSystemException exception) {
+            // Source on another file system
+            copy(source, target);
+        }
+    }
+
+    /**
+     * Moves every blob that is not stored on its owning root, blobs that already exist there are deleted.
+     */
+    public @NotNull Rebalance rebalance() throws IOException {
+        long moved = 0, removed = 0, bytes = 0;
+        for (Path root : this.roots) {
+            var directory = root.resolve(Blobs.DIRECTORY);
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            List<Path> misplaced = new ArrayList<>();
+            try (var files = Files.walk(directory)) {
+                files.filter(file -> BLOB.matcher(file.getFileName().toString()).matches())
+                        .filter(file -> !this.owner(file.getFileName().toString()).equals(root))
+                        .forEach(misplaced::add);
+            }
+            for (Path file : misplaced) {
+                var sha256 = file.getFileName().toString();
+                var target = Blobs.path(this.owner(sha256), sha256);
+                if (Files.exists(target)) {
+                    Files.delete(file);
+                    removed++;
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                bytes += Files.size(file);
+                copy(file, target);
+                Files.delete(file);
+                moved++;
+            }
+        }
+        return new Rebalance(moved, removed, bytes);
+    }
+
+    private static @Nullable Artifact find(@NotNull Path root, @NotNull String sha256) throws IOException {
+        var path = Blobs.path(root, sha256);
+        return Files.exists(path) ? LocalArtifact.of(path) : null;
+    }
+
+    /**
+     * Copies through a temporary file next to the target, so a blob is never visible half written.
+     * Every copy gets its own temporary file, concurrent copies of the same blob would otherwise write into each other.
+     */
+    private static void copy(@NotNull Path source, @NotNull Path target) throws IOException {
+        var temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static long point(byte[] digest) {
+        long point = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            point = (point << 8) | (digest[i] & 0xFF);
+        }
+        return point;
+    }
+
+    public record Rebalance(long moved, long removed, long bytes) {}
+
+}
@@ -26,6 +26,7 @@ package de.rafael.bibliothek.throwables;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -47,6 +48,18 @@ public class Advice {
         this.json = json;
     }
 
+    @ExceptionHandler(BuildAlreadyExists.class)
+    @ResponseBody
+    public ResponseEntity<?> buildAlreadyExists(final BuildAlreadyExists exception) {
+        return this.error(HttpStatus.CONFLICT, "Build already exists.", null);
+    }
+
+    @ExceptionHandler(BuildNotFound.class)
+    @ResponseBody
+    public ResponseEntity<?> buildNotFound(final BuildNotFound exception) {
+        return this.error(HttpStatus.NOT_FOUND, "Build not found.", null);
+    }
+
     @ExceptionHandler(DownloadFailed.class)
     @ResponseBody
     public ResponseEntity<?> downloadFailed(final DownloadFailed exception) {
@@ -60,12 +73,46 @@ public class Advice {
         return this.error(HttpStatus.NOT_FOUND, "Download not found.", null);
     }
 
+    @ExceptionHandler(GroupNotFound.class)
+    @ResponseBody
+    public ResponseEntity<?> groupNotFound(final GroupNotFound exception) {
+        return this.error(HttpStatus.NOT_FOUND, "Group not found.", null);
+    }
+
+    @ExceptionHandler(InvalidParameter.class)
+    @ResponseBody
+    public ResponseEntity<?> invalidParameter(final InvalidParameter exception) {
+        return this.error(HttpStatus.BAD_REQUEST, "Invalid parameter.", exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidUpload.class)
+    @ResponseBody
+    public ResponseEntity<?> invalidUpload(final InvalidUpload exception) {
+        return this.error(HttpStatus.BAD_REQUEST, "Invalid upload.", exception.getMessage());
+    }
+
     @ExceptionHandler(ProjectNotFound.class)
     @ResponseBody
     public ResponseEntity<?> projectNotFound(final ProjectNotFound exception) {
         return this.error(HttpStatus.NOT_FOUND, "Project not found.", null);
     }
 
+    @ExceptionHandler(TooManyRequests.class)
+    @ResponseBody
+    public ResponseEntity<?> tooManyRequests(final TooManyRequests exception) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfter()))
+                .body(this.json.createObjectNode().put("error", "Too many requests.").put("message", (String) null));
+    }
+
+    @ExceptionHandler(Unauthorized.class)
+    @ResponseBody
+    public ResponseEntity<?> unauthorized(final Unauthorized exception) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+                .body(this.json.createObjectNode().put("error", "Unauthorized.").put("message", (String) null));
+    }
+
     @ExceptionHandler(VersionNotFound.class)
     @ResponseBody
     public ResponseEntity<?> versionNotFound(final VersionNotFound exception) {
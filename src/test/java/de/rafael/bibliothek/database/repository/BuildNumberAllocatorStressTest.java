@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.projection.BuildNumber;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Lets many publishers allocate and insert builds of the same version at once, every number has to be handed out exactly
+ * once and without gaps. Needs a MongoDB, run with {@code ./gradlew benchmark}.
+ *
+ * @author Rafael K.
+ * @since 19:05, 19.10.26
+ */
+
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BuildNumberAllocatorStressTest {
+
+    private static final int PUBLISHERS = 32;
+    private static final int BUILDS = 50;
+    /**
+     * Published before the sequence existed, allocation has to continue after them
+     */
+    private static final int EXISTING = 3;
+    private static final int EXPLICIT = 100_000;
+
+    @Autowired
+    private MongoTemplate template;
+    @Autowired
+    private BuildRepository builds;
+    @Autowired
+    private BuildSequenceRepository sequences;
+
+    private Project project;
+    private Version version;
+
+    @BeforeAll
+    void seed() {
+        this.project = this.template.insert(new Project(new ObjectId(), "sequence", "Sequence"));
+        this.version = this.template.insert(new Version(new ObjectId(), this.project._id(), null, "1.0.0", Instant.now()));
+        for (int number = 1; number <= EXISTING; number++) {
+            this.template.insert(this.build(number));
+        }
+    }
+
+    @AfterAll
+    void cleanup() {
+        this.builds.deleteAll(this.builds.findAllByProjectAndVersion(this.project._id(), this.version._id()));
+        this.sequences.deleteById(this.version._id());
+        this.template.remove(this.version);
+        this.template.remove(this.project);
+    }
+
+    @Test
+    void concurrentPublishersReceiveDistinctNumbers() throws Exception {
+        var numbers = concurrently(() -> {
+            var allocated = new ArrayList<Integer>(BUILDS);
+            for (int i = 0; i < BUILDS; i++) {
+                var number = this.sequences.next(this.project._id(), this.version._id());
+                this.template.insert(this.build(number));
+                allocated.add(number);
+            }
+            return allocated;
+        }).stream().flatMap(List::stream).sorted().toList();
+
+        var expected = IntStream.rangeClosed(EXISTING + 1, EXISTING + PUBLISHERS * BUILDS).boxed().toList();
+        assertEquals(expected, numbers);
+        var stored = this.builds.findAllNumbersByProjectAndVersion(this.project._id(), this.version._id()).stream()
+                .map(BuildNumber::number)
+                .filter(number -> number < EXPLICIT)
+                .toList();
+        assertEquals(IntStream.rangeClosed(1, EXISTING + PUBLISHERS * BUILDS).boxed().toList(), stored);
+    }
+
+    @Test
+    void uniqueIndexAdmitsOneOfManyEqualNumbers() throws Exception {
+        var results = concurrently(() -> {
+            try {
+                this.template.insert(this.build(EXPLICIT));
+                return true;
+            } catch (DuplicateKeyException exception) {
+                return false;
+            }
+        });
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+    }
+
+    private <T> List<T> concurrently(Callable<T> publisher) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PUBLISHERS);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<T>>(PUBLISHERS);
+            for (int i = 0; i < PUBLISHERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return publisher.call();
+                }));
+            }
+            start.countDown();
+            var results = new ArrayList<T>(PUBLISHERS);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Build build(int number) {
+        return new Build(new ObjectId(), this.project._id(), this.version._id(), number, Instant.now(), List.of(), List.of(), Map.of(), Build.Channel.DEFAULT, Build.DisplayMode.HIDE);
+    }
+
+}
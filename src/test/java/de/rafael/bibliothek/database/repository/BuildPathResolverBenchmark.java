@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.database.repository;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import de.rafael.bibliothek.Latency;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Compares the chained project/version/build lookups with the single aggregation of {@link BuildPathResolver}.
+ * Run with {@code ./gradlew benchmark} against a local MongoDB.
+ *
+ * @author Rafael K.
+ * @since 15:36, 18.10.26
+ */
+
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BuildPathResolverBenchmark {
+
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 5_000;
+
+    @Autowired
+    private MongoTemplate template;
+    @Autowired
+    private ProjectRepository projects;
+    @Autowired
+    private VersionRepository versions;
+    @Autowired
+    private BuildRepository builds;
+
+    private Project project;
+    private Version version;
+    private Build build;
+
+    @BeforeAll
+    void seed() {
+        this.project = this.template.insert(new Project(new ObjectId(), "benchmark", "Benchmark"));
+        this.version = this.template.insert(new Version(new ObjectId(), this.project._id(), null, "1.0.0", Instant.now()));
+        for (int number = 1; number <= 100; number++) {
+            this.build = this.template.insert(new Build(new ObjectId(), this.project._id(), this.version._id(), number, Instant.now(), List.of(), List.of(), Map.of(), Build.Channel.DEFAULT, Build.DisplayMode.HIDE));
+        }
+    }
+
+    @AfterAll
+    void cleanup() {
+        this.builds.deleteAll(this.builds.findAllByProjectAndVersion(this.project._id(), this.version._id()));
+        this.template.remove(this.version);
+        this.template.remove(this.project);
+    }
+
+    @Test
+    void chainedVersusAggregated() {
+        Latency.measure("chained (3 queries)", WARMUP, ITERATIONS, () -> {
+            var project = this.projects.findByName(this.project.name()).orElseThrow();
+            var version = this.versions.findByProjectAndName(project._id(), this.version.name()).orElseThrow();
+            assertNotNull(this.builds.findByProjectAndVersionAndNumber(project._id(), version._id(), this.build.number()).orElse(null));
+        });
+        Latency.measure("aggregated (1 query)", WARMUP, ITERATIONS, () ->
+                assertNotNull(this.builds.resolve(this.project.name(), this.version.name(), this.build.number()).orElseThrow().build()));
+    }
+
+}
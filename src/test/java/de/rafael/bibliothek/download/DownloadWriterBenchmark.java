@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.rafael.bibliothek.Latency;
+import de.rafael.bibliothek.classes.ApiController;
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.database.repository.ProjectRepository;
+import de.rafael.bibliothek.database.repository.VersionRepository;
+import de.rafael.bibliothek.storage.Blobs;
+import de.rafael.bibliothek.throwables.DownloadNotFound;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Compares the download endpoint before {@link DownloadWriter}, which returned a {@link FileSystemResource} through the
+ * resource message converter, with the current one. Both run in the same server, the old one is rebuilt here as
+ * {@link LegacyDownloadController} with its three lookups and the old {@code project/version/build/name} path.
+ * Run with {@code ./gradlew benchmark} against a local MongoDB.
+ *
+ * @author Rafael K.
+ * @since 20:58, 18.10.26
+ */
+
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(DownloadWriterBenchmark.LegacyDownloadController.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DownloadWriterBenchmark {
+
+    private static final String PROJECT = "downloads";
+    private static final String VERSION = "1.0.0";
+    private static final int LARGE = 128 * 1024 * 1024;
+    private static final int SMALL = 256 * 1024;
+    private static final int ROUNDS = 10;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2_000;
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("app.storage-path", () -> storage.toString());
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private MongoTemplate template;
+    @Autowired
+    private BuildRepository builds;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private Project project;
+    private Version version;
+
+    @BeforeAll
+    void seed() throws IOException {
+        this.project = this.template.insert(new Project(new ObjectId(), PROJECT, "Downloads"));
+        this.version = this.template.insert(new Version(new ObjectId(), this.project._id(), null, VERSION, Instant.now()));
+        var downloads = Map.of(
+                "application", new Build.Download("large.jar", this.store("large.jar", LARGE)),
+                "small", new Build.Download("small.jar", this.store("small.jar", SMALL))
+        );
+        this.template.insert(new Build(new ObjectId(), this.project._id(), this.version._id(), 1, Instant.now(), List.of(), List.of(), downloads, Build.Channel.DEFAULT, Build.DisplayMode.HIDE));
+    }
+
+    /**
+     * Stores the file as a blob for the current endpoint and links it into the old layout for the legacy one.
+     */
+    private String store(String name, int size) throws IOException {
+        var content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        var legacy = storage.resolve(PROJECT).resolve(VERSION).resolve("1").resolve(name);
+        Files.createDirectories(legacy.getParent());
+        Files.write(legacy, content);
+        var sha256 = Blobs.sha256(legacy);
+        var blob = Blobs.path(storage, sha256);
+        Files.createDirectories(blob.getParent());
+        Files.createLink(blob, legacy);
+        return sha256;
+    }
+
+    @AfterAll
+    void cleanup() {
+        this.builds.deleteAll(this.builds.findAllByProjectAndVersion(this.project._id(), this.version._id()));
+        this.template.remove(this.version);
+        this.template.remove(this.project);
+    }
+
+    @Test
+    void legacyVersusDownloadWriter() {
+        throughput("legacy, large", this.legacy("large.jar"));
+        throughput("DownloadWriter, large", this.current("large.jar"));
+        Latency.measure("legacy, small", WARMUP, ITERATIONS, () -> this.download(this.legacy("small.jar")));
+        Latency.measure("DownloadWriter, small", WARMUP, ITERATIONS, () -> this.download(this.current("small.jar")));
+    }
+
+    private void throughput(String name, URI uri) {
+        this.download(uri);
+        var start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            this.download(uri);
+        }
+        var seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-32s %8.1f MiB/s%n", name, (double) LARGE * ROUNDS / (1024 * 1024) / seconds);
+    }
+
+    private URI legacy(String name) {
+        return URI.create("http://127.0.0.1:" + this.port + "/legacy/projects/" + PROJECT + "/versions/" + VERSION + "/builds/1/downloads/" + name);
+    }
+
+    private URI current(String name) {
+        return URI.create("http://127.0.0.1:" + this.port + "/v1/projects/" + PROJECT + "/versions/" + VERSION + "/builds/1/downloads/" + name);
+    }
+
+    private void download(URI uri) {
+        var request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build();
+        try {
+            assertEquals(200, this.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * The download endpoint as it was before {@link DownloadWriter}.
+     */
+    @RestController
+    static class LegacyDownloadController {
+
+        private final Path storagePath;
+        private final ProjectRepository projects;
+        private final VersionRepository versions;
+        private final BuildRepository builds;
+
+        @Autowired
+        LegacyDownloadController(AppConfiguration configuration, ProjectRepository projects, VersionRepository versions, BuildRepository builds) {
+            this.storagePath = configuration.getStoragePath();
+            this.projects = projects;
+            this.versions = versions;
+            this.builds = builds;
+        }
+
+        @GetMapping(value = "/legacy/projects/{project}/versions/{version}/builds/{build}/downloads/{download}", produces = "application/java-archive")
+        ResponseEntity<FileSystemResource> download(@PathVariable("project") String projectName, @PathVariable("version") String versionName, @PathVariable("build") int buildNumber, @PathVariable("download") String downloadName) throws IOException {
+            var project = this.projects.findByName(projectName).orElseThrow(DownloadNotFound::new);
+            var version = this.versions.findByProjectAndName(project._id(), versionName).orElseThrow(DownloadNotFound::new);
+            var build = this.builds.findByProjectAndVersionAndNumber(project._id(), version._id(), buildNumber).orElseThrow(DownloadNotFound::new);
+            var download = build.downloads().values().stream().filter(value -> value.name().equals(downloadName)).findFirst().orElseThrow(DownloadNotFound::new);
+            var path = this.storagePath.resolve(project.name()).resolve(version.name()).resolve(String.valueOf(build.number())).resolve(download.name());
+
+            var headers = new HttpHeaders();
+            headers.setCacheControl(ApiController.defaultCache());
+            headers.setContentDisposition(ContentDisposition.attachment().filename(path.getFileName().toString(), StandardCharsets.UTF_8).build());
+            headers.setContentType(ApiController.JAVA_ARCHIVE);
+            headers.setLastModified(Files.getLastModifiedTime(path).toInstant());
+            return new ResponseEntity<>(new FileSystemResource(path), headers, HttpStatus.OK);
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.download;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.rafael.bibliothek.Latency;
+import de.rafael.bibliothek.database.model.Build;
+import de.rafael.bibliothek.database.model.Project;
+import de.rafael.bibliothek.database.model.Version;
+import de.rafael.bibliothek.database.repository.BuildRepository;
+import de.rafael.bibliothek.storage.Blobs;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Keeps far more stalled downloads open than there are request threads and checks that metadata requests are still
+ * answered as fast as without them. Sendfile is disabled, so the downloads go through {@link AsyncTransfer}.
+ * Run with {@code ./gradlew benchmark} against a local MongoDB.
+ *
+ * @author Rafael K.
+ * @since 14:40, 19.10.26
+ */
+
+@Tag("benchmark")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "app.downloads.sendfile=false",
+                "server.tomcat.threads.max=32"
+        }
+)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SlowClientBenchmark {
+
+    private static final int SLOW_CLIENTS = 256;
+    private static final int SIZE = 32 * 1024 * 1024;
+    private static final int WARMUP = 100;
+    private static final int ITERATIONS = 1_000;
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("app.storage-path", () -> storage.toString());
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private MongoTemplate template;
+    @Autowired
+    private BuildRepository builds;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private Project project;
+    private Version version;
+
+    @BeforeAll
+    void seed() throws IOException {
+        var content = new byte[SIZE];
+        ThreadLocalRandom.current().nextBytes(content);
+        var file = Files.write(storage.resolve("slow.jar"), content);
+        var sha256 = Blobs.sha256(file);
+        var blob = Blobs.path(storage, sha256);
+        Files.createDirectories(blob.getParent());
+        Files.move(file, blob);
+
+        this.project = this.template.insert(new Project(new ObjectId(), "slow-clients", "Slow Clients"));
+        this.version = this.template.insert(new Version(new ObjectId(), this.project._id(), null, "1.0.0", Instant.now()));
+        this.template.insert(new Build(new ObjectId(), this.project._id(), this.version._id(), 1, Instant.now(), List.of(), List.of(), Map.of("application", new Build.Download("slow.jar", sha256)), Build.Channel.DEFAULT, Build.DisplayMode.HIDE));
+    }
+
+    @AfterAll
+    void cleanup() {
+        this.builds.deleteAll(this.builds.findAllByProjectAndVersion(this.project._id(), this.version._id()));
+        this.template.remove(this.version);
+        this.template.remove(this.project);
+    }
+
+    @Test
+    void metadataLatencyWithStalledDownloads() throws IOException {
+        var idle = Latency.measure("metadata, idle", WARMUP, ITERATIONS, this::metadata);
+
+        var sockets = new ArrayList<Socket>(SLOW_CLIENTS);
+        try {
+            for (int i = 0; i < SLOW_CLIENTS; i++) {
+                var socket = new Socket();
+                // A tiny receive window and no reads, the server can only send a few KiB before it has to wait
+                socket.setReceiveBufferSize(4096);
+                socket.connect(new InetSocketAddress("127.0.0.1", this.port));
+                socket.getOutputStream().write(("GET /v1/projects/slow-clients/versions/1.0.0/builds/1/downloads/slow.jar HTTP/1.1\r\n"
+                        + "Host: 127.0.0.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                socket.getOutputStream().flush();
+                sockets.add(socket);
+            }
+            // Make sure every download has started before measuring
+            for (Socket socket : sockets) {
+                assertTrue(socket.getInputStream().read() >= 0);
+            }
+
+            var loaded = Latency.measure("metadata, " + SLOW_CLIENTS + " stalled downloads", WARMUP, ITERATIONS, this::metadata);
+            assertTrue(loaded.percentile(0.99) < Math.max(idle.percentile(0.99) * 5, Duration.ofMillis(50).toNanos()),
+                    "p99 went from " + idle.percentile(0.99) / 1e6 + "ms to " + loaded.percentile(0.99) / 1e6 + "ms");
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private void metadata() {
+        var request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + this.port + "/v1/projects/slow-clients"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            assertEquals(200, this.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.rafael.bibliothek.database.model.Build;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Rafael K.
+ * @since 21:31, 19.10.26
+ */
+
+class ChangelogIndexTest {
+
+    private static final ChangelogIndex.Reference FIRST = new ChangelogIndex.Reference("1.0", 1, Instant.ofEpochSecond(100), Build.Channel.DEFAULT);
+    private static final ChangelogIndex.Reference SECOND = new ChangelogIndex.Reference("1.0", 2, Instant.ofEpochSecond(200), Build.Channel.DEFAULT);
+
+    private static final Build.Change CRASH = new Build.Change("a1b2c3d4e5", "Fix crash on startup", "Fix crash on startup\n\nThe loader threw a NPE");
+    private static final Build.Change DEPENDENCIES = new Build.Change("f6e5d4c3b2", "Update dependencies", "Includes the new crash reporter");
+
+    @Test
+    void ranksSummaryMatchesFirst() {
+        var index = new ChangelogIndex();
+        index.add(SECOND, List.of(DEPENDENCIES, CRASH));
+
+        var hits = index.search("crash", 10);
+        assertEquals(List.of(CRASH.commit(), DEPENDENCIES.commit()), hits.stream().map(ChangelogIndex.Hit::commit).toList());
+    }
+
+    @Test
+    void requiresAllTermsAndCompletesTheLast() {
+        var index = new ChangelogIndex();
+        index.add(SECOND, List.of(DEPENDENCIES, CRASH));
+
+        assertEquals(List.of(CRASH.commit()), index.search("loader cra", 10).stream().map(ChangelogIndex.Hit::commit).toList());
+        assertTrue(index.search("loader reporter", 10).isEmpty());
+    }
+
+    @Test
+    void findsCommitsByHashPrefix() {
+        var index = new ChangelogIndex();
+        index.add(SECOND, List.of(DEPENDENCIES, CRASH));
+
+        assertEquals(List.of(DEPENDENCIES.commit()), index.search("F6E5", 10).stream().map(ChangelogIndex.Hit::commit).toList());
+    }
+
+    @Test
+    void keepsTheEarliestBuild() {
+        var index = new ChangelogIndex();
+        index.add(SECOND, List.of(CRASH));
+        index.add(FIRST, List.of(CRASH));
+        index.add(SECOND, List.of(CRASH));
+
+        var hits = index.search("crash", 10);
+        assertEquals(1, hits.size());
+        assertEquals(FIRST, hits.get(0).build());
+        assertEquals(1, index.size());
+    }
+
+}
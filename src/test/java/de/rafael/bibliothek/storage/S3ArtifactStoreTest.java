@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import de.rafael.bibliothek.configuration.AppConfiguration;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
+
+/**
+ * Runs against a local S3 stand-in, e.g. {@code docker run -p 9000:9000 minio/minio server /data} with
+ * {@code S3_ENDPOINT=http://127.0.0.1:9000}. Credentials default to the MinIO defaults.
+ *
+ * @author Rafael K.
+ * @since 11:48, 19.10.26
+ */
+
+@EnabledIfEnvironmentVariable(named = "S3_ENDPOINT", matches = ".+")
+class S3ArtifactStoreTest {
+
+    private static final String BUCKET = "bibliothek-test";
+
+    @Test
+    void storeFindAndReadRange(@TempDir Path directory) throws IOException {
+        var configuration = new AppConfiguration.S3();
+        configuration.setEndpoint(URI.create(System.getenv("S3_ENDPOINT")));
+        configuration.setAccessKey(System.getenv().getOrDefault("S3_ACCESS_KEY", "minioadmin"));
+        configuration.setSecretKey(System.getenv().getOrDefault("S3_SECRET_KEY", "minioadmin"));
+        var client = S3ArtifactStore.client(configuration);
+        try {
+            client.createBucket(request -> request.bucket(BUCKET));
+        } catch (BucketAlreadyOwnedByYouException ignored) {
+        }
+        var store = new S3ArtifactStore(client, BUCKET, configuration.getPrefix());
+
+        var content = new byte[256 * 1024];
+        new Random(42).nextBytes(content);
+        var file = Files.write(directory.resolve("artifact.jar"), content);
+        var sha256 = Blobs.sha256(file);
+
+        store.store(sha256, file);
+        var artifact = store.find(sha256);
+        assertNotNull(artifact);
+        assertNull(artifact.path());
+        assertEquals(content.length, artifact.length());
+        try (var input = artifact.open(1000, 5000)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 1000, 6000), input.readAllBytes());
+        }
+        assertNull(store.find("0".repeat(64)));
+    }
+
+}
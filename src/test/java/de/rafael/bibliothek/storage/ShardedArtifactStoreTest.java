@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Rafael
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.rafael.bibliothek.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Rafael K.
+ * @since 21:55, 19.10.26
+ */
+
+class ShardedArtifactStoreTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int BLOBS = 200;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ownerIsStableAndSpread() {
+        var roots = List.of(this.directory.resolve("a"), this.directory.resolve("b"), this.directory.resolve("c"));
+        var store = new ShardedArtifactStore(roots, VIRTUAL_NODES);
+        var same = new ShardedArtifactStore(roots, VIRTUAL_NODES);
+        var owned = new int[roots.size()];
+        for (String sha256 : hashes(BLOBS)) {
+            var owner = store.owner(sha256);
+            assertEquals(owner, same.owner(sha256));
+            owned[roots.indexOf(owner)]++;
+        }
+        for (int count : owned) {
+            assertTrue(count > BLOBS / 10, "Every root owns a share of the blobs");
+        }
+    }
+
+    @Test
+    void addingRootOnlyMovesBlobsToIt() {
+        var a = this.directory.resolve("a");
+        var b = this.directory.resolve("b");
+        var c = this.directory.resolve("c");
+        var before = new ShardedArtifactStore(List.of(a, b), VIRTUAL_NODES);
+        var after = new ShardedArtifactStore(List.of(a, b, c), VIRTUAL_NODES);
+        for (String sha256 : hashes(BLOBS)) {
+            var owner = after.owner(sha256);
+            assertTrue(owner.equals(c) || owner.equals(before.owner(sha256)), "Blobs either stay or move to the new root");
+        }
+    }
+
+    @Test
+    void findFallsBackUntilRebalanced() throws IOException {
+        var a = this.directory.resolve("a");
+        var b = this.directory.resolve("b");
+        var single = new ShardedArtifactStore(List.of(a), VIRTUAL_NODES);
+        var hashes = hashes(BLOBS);
+        for (String sha256 : hashes) {
+            single.store(sha256, Files.writeString(this.directory.resolve("upload"), sha256));
+            Files.delete(this.directory.resolve("upload"));
+        }
+
+        var store = new ShardedArtifactStore(List.of(a, b), VIRTUAL_NODES);
+        var misplaced = hashes.stream().filter(sha256 -> store.owner(sha256).equals(b)).toList();
+        assertFalse(misplaced.isEmpty());
+        for (String sha256 : misplaced) {
+            var artifact = store.find(sha256);
+            assertNotNull(artifact, "Found on the old root before the rebalance");
+            assertEquals(Blobs.path(a, sha256), artifact.path());
+        }
+
+        var rebalance = store.rebalance();
+        assertEquals(misplaced.size(), rebalance.moved());
+        assertEquals(0, rebalance.removed());
+        for (String sha256 : hashes) {
+            var owner = store.owner(sha256);
+            var artifact = store.find(sha256);
+            assertNotNull(artifact);
+            assertEquals(Blobs.path(owner, sha256), artifact.path());
+            assertEquals(sha256, Files.readString(artifact.path()));
+            if (owner.equals(b)) {
+                assertFalse(Files.exists(Blobs.path(a, sha256)), "Moved blobs are removed from the old root");
+            }
+        }
+        assertEquals(0, store.rebalance().moved());
+        assertNull(store.find("0".repeat(64)));
+    }
+
+    private static List<String> hashes(int count) {
+        var random = new Random(42);
+        var hashes = new ArrayList<String>(count);
+        var bytes = new byte[32];
+        for (int i = 0; i < count; i++) {
+            random.nextBytes(bytes);
+            hashes.add(HexFormat.of().formatHex(bytes));
+        }
+        return hashes;
+    }
+
+}